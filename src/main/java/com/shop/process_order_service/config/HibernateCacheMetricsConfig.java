@@ -0,0 +1,23 @@
+package com.shop.process_order_service.config;
+
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * Publishes Hibernate statistics, including second-level and query cache hits and misses per
+ * region ({@code hibernate.second.level.cache.requests}, {@code hibernate.query.cache.requests}).
+ */
+@Configuration
+public class HibernateCacheMetricsConfig {
+
+    @Bean
+    public MeterBinder hibernateMetrics(EntityManagerFactory entityManagerFactory) {
+        return new HibernateMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory", List.of());
+    }
+}
@@ -0,0 +1,42 @@
+package com.shop.process_order_service.config;
+
+import com.shop.process_order_service.entity.NotificationType;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Sizes of the per notification type delivery executors, bound from
+ * {@code app.notification.executors.<type>}, e.g. {@code app.notification.executors.order-confirmation.queue-capacity}.
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "app.notification")
+public class NotificationExecutorProperties {
+
+    private Map<NotificationType, Pool> executors = new EnumMap<>(NotificationType.class);
+
+    public Pool poolFor(NotificationType type) {
+        return executors.getOrDefault(type, new Pool());
+    }
+
+    public enum RejectionPolicy {
+        /** Run the task on the submitting thread, slowing the producer down. */
+        CALLER_RUNS,
+        /** Discard the oldest queued task to make room. */
+        DROP_OLDEST,
+        /** Leave the notification in the outbox for a later dispatch. */
+        SPILL_TO_DATABASE
+    }
+
+    @Data
+    public static class Pool {
+        private int coreSize = 2;
+        private int maxSize = 4;
+        private int queueCapacity = 1000;
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.CALLER_RUNS;
+    }
+}
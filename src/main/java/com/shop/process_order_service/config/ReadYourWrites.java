@@ -0,0 +1,43 @@
+package com.shop.process_order_service.config;
+
+/**
+ * Per-request switch that sends read-only transactions to the primary database instead of the
+ * replica, for reads that must see a write the replica may not have applied yet.
+ * <p>
+ * A request is pinned when the client asks for it with the {@value #HEADER} header, for example
+ * when reading an order right after creating it, or automatically once the request has used the
+ * primary for a read-write transaction. Outside a request, for example on scheduler threads,
+ * nothing is pinned.
+ */
+public final class ReadYourWrites {
+
+    public static final String HEADER = "X-Read-Your-Writes";
+
+    private static final ThreadLocal<boolean[]> PINNED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    /**
+     * Pins the rest of the current request to the primary. Does nothing outside a request.
+     */
+    public static void pin() {
+        boolean[] pinned = PINNED.get();
+        if (pinned != null) {
+            pinned[0] = true;
+        }
+    }
+
+    public static boolean isPinned() {
+        boolean[] pinned = PINNED.get();
+        return pinned != null && pinned[0];
+    }
+
+    static void beginRequest(boolean pinned) {
+        PINNED.set(new boolean[]{pinned});
+    }
+
+    static void endRequest() {
+        PINNED.remove();
+    }
+}
@@ -0,0 +1,29 @@
+package com.shop.process_order_service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Opens the {@link ReadYourWrites} scope of each request, pinned from the start if the request
+ * carries {@code X-Read-Your-Writes: true}.
+ */
+@Component
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        ReadYourWrites.beginRequest(Boolean.parseBoolean(request.getHeader(ReadYourWrites.HEADER)));
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.endRequest();
+        }
+    }
+}
@@ -1,6 +1,10 @@
 package com.shop.process_order_service.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shop.process_order_service.dto.CustomerPage;
 import com.shop.process_order_service.dto.CustomerResponseDto;
+import com.shop.process_order_service.dto.CustomerSearchCriteria;
+import com.shop.process_order_service.dto.OrderHistoryPage;
 import com.shop.process_order_service.dto.OrderResponseDto;
 import com.shop.process_order_service.dto.StandardApiResponse;
 import com.shop.process_order_service.exception.CustomerNotFoundException;
@@ -10,17 +14,28 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.PositiveOrZero;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 @Slf4j
 @RestController
@@ -32,20 +47,27 @@ public class CustomerController {
 
     private final OrderService orderService;
     private final CustomerService customerService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/{customerId}/history")
-    @Operation(summary = "Get customer order history", description = "Retrieves all orders for a specific customer")
+    @Operation(summary = "Get customer order history", description = "Retrieves a page of a customer's orders, newest first")
     public ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> getCustomerOrderHistory(
             @Parameter(description = "Customer ID", required = true)
             @PathVariable @Positive Long customerId,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit,
             HttpServletRequest httpRequest) {
 
         try {
-            List<OrderResponseDto> orders = orderService.getCustomerOrders(customerId);
+            OrderHistoryPage page = orderService.getCustomerOrders(customerId, cursor, limit);
+            List<OrderResponseDto> orders = page.getOrders();
 
             StandardApiResponse<List<OrderResponseDto>> apiResponse = StandardApiResponse
                     .success(orders, String.format("Retrieved %d orders for customer", orders.size()));
             apiResponse.setPath(httpRequest.getRequestURI());
+            apiResponse.setNextCursor(page.getNextCursor());
 
             return ResponseEntity.ok(apiResponse);
         } catch (CustomerNotFoundException e) {
@@ -57,10 +79,85 @@ public class CustomerController {
         }
     }
 
+    @GetMapping("/{customerId}/history/export")
+    @Operation(summary = "Export customer order history",
+            description = "Streams every order of a customer as newline-delimited JSON, newest first")
+    public ResponseEntity<StreamingResponseBody> exportCustomerOrderHistory(
+            @Parameter(description = "Customer ID", required = true)
+            @PathVariable @Positive Long customerId) {
+
+        // Checked up front so that a missing history is still a 404 rather than an empty stream.
+        orderService.checkCustomerHasOrders(customerId);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            long exported = orderService.exportCustomerOrders(customerId, order -> writeLine(out, order));
+            out.flush();
+            log.info("Exported {} orders for customer {}", exported, customerId);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @GetMapping
-    public ResponseEntity<StandardApiResponse<List<CustomerResponseDto>>> getAllCustomers() {
-        List<CustomerResponseDto> customers = customerService.getAllCustomers();
-        return ResponseEntity.ok(StandardApiResponse.success(customers));
+    @Operation(summary = "List customers", description = "Retrieves a page of customers in id order, optionally filtered")
+    public ResponseEntity<StandardApiResponse<List<CustomerResponseDto>>> getCustomers(
+            @Parameter(description = "Only customers whose mobile number starts with this prefix")
+            @RequestParam(required = false) @Pattern(regexp = "\\+?[0-9]{1,20}") String mobilePrefix,
+            @Parameter(description = "Minimum loyalty score, inclusive")
+            @RequestParam(required = false) @PositiveOrZero Integer minLoyaltyScore,
+            @Parameter(description = "Maximum loyalty score, inclusive")
+            @RequestParam(required = false) @PositiveOrZero Integer maxLoyaltyScore,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "50") @Min(1) @Max(500) int limit) {
+
+        CustomerSearchCriteria criteria = criteria(mobilePrefix, minLoyaltyScore, maxLoyaltyScore);
+        CustomerPage page = customerService.getCustomers(criteria, cursor, limit);
+        StandardApiResponse<List<CustomerResponseDto>> apiResponse = StandardApiResponse.success(page.getCustomers());
+        apiResponse.setNextCursor(page.getNextCursor());
+        return ResponseEntity.ok(apiResponse);
     }
-}
 
+    @GetMapping("/export")
+    @Operation(summary = "Export customers",
+            description = "Streams every matching customer as newline-delimited JSON in id order")
+    public ResponseEntity<StreamingResponseBody> exportCustomers(
+            @Parameter(description = "Only customers whose mobile number starts with this prefix")
+            @RequestParam(required = false) @Pattern(regexp = "\\+?[0-9]{1,20}") String mobilePrefix,
+            @Parameter(description = "Minimum loyalty score, inclusive")
+            @RequestParam(required = false) @PositiveOrZero Integer minLoyaltyScore,
+            @Parameter(description = "Maximum loyalty score, inclusive")
+            @RequestParam(required = false) @PositiveOrZero Integer maxLoyaltyScore) {
+
+        CustomerSearchCriteria criteria = criteria(mobilePrefix, minLoyaltyScore, maxLoyaltyScore);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            long exported = customerService.exportCustomers(criteria, customer -> writeLine(out, customer));
+            out.flush();
+            log.info("Exported {} customers", exported);
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    private static CustomerSearchCriteria criteria(String mobilePrefix, Integer minLoyaltyScore, Integer maxLoyaltyScore) {
+        return CustomerSearchCriteria.builder()
+                .mobilePrefix(mobilePrefix)
+                .minLoyaltyScore(minLoyaltyScore)
+                .maxLoyaltyScore(maxLoyaltyScore)
+                .build();
+    }
+
+    private void writeLine(OutputStream out, Object value) {
+        try {
+            out.write(objectMapper.writeValueAsBytes(value));
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.shop.process_order_service.controller;
 
 import com.shop.process_order_service.dto.*;
+import com.shop.process_order_service.service.BatchOrderService;
+import com.shop.process_order_service.service.OrderETags;
 import com.shop.process_order_service.service.OrderService;
+import com.shop.process_order_service.service.QueuePositionStream;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -9,16 +12,23 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.Positive;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/orders")
@@ -29,6 +39,9 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final BatchOrderService batchOrderService;
+    private final QueuePositionStream queuePositionStream;
+    private final OrderETags orderETags;
 
     @PostMapping
     @Operation(summary = "Process a new order", description = "Creates a new order and adds it to the queue")
@@ -48,14 +61,41 @@ public class OrderController {
         return ResponseEntity.status(HttpStatus.CREATED).body(apiResponse);
     }
 
+    @PostMapping("/batch")
+    @Operation(summary = "Process a batch of orders", description = "Creates many orders in one request and reports the outcome of each order")
+    public ResponseEntity<StandardApiResponse<BatchOrderResponseDto>> createOrders(
+            @Valid @RequestBody BatchOrderRequestDto request,
+            HttpServletRequest httpRequest) {
+
+        log.info("Processing batch order request with {} orders", request.getOrders().size());
+
+        BatchOrderResponseDto response = batchOrderService.processOrders(request.getOrders());
+
+        StandardApiResponse<BatchOrderResponseDto> apiResponse = StandardApiResponse
+                .success(response, String.format("Batch processed: %d accepted, %d rejected",
+                        response.getAccepted(), response.getRejected()));
+        apiResponse.setPath(httpRequest.getRequestURI());
+
+        return ResponseEntity.ok(apiResponse);
+    }
+
     @GetMapping("/{orderId}")
-    @Operation(summary = "Get order details", description = "Retrieves details of a specific order")
+    @Operation(summary = "Get order details",
+            description = "Retrieves details of a specific order; answers 304 if If-None-Match matches the order's ETag")
     public ResponseEntity<StandardApiResponse<OrderResponseDto>> getOrder(
             @PathVariable @Positive Long orderId,
-            HttpServletRequest httpRequest) {
+            HttpServletRequest httpRequest,
+            WebRequest webRequest) {
         log.info("Received request to get order with id: {}", orderId);
+        Optional<String> unchanged = orderETags.unchangedOrder(orderId, webRequest.getHeader(HttpHeaders.IF_NONE_MATCH));
+        if (unchanged.isPresent()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(unchanged.get()).build();
+        }
         try {
             OrderResponseDto orderRes = orderService.getOrder(orderId);
+            if (webRequest.checkNotModified(orderETags.forOrder(orderId, orderRes.getVersion()))) {
+                return null;
+            }
             log.info("Successfully retrieved order: {}", orderRes);
             StandardApiResponse<OrderResponseDto> response = StandardApiResponse.<OrderResponseDto>builder()
                     .success(true)
@@ -72,30 +112,43 @@ public class OrderController {
     }
 
     @GetMapping("/customer/{customerId}")
-    @Operation(summary = "Get customer orders", description = "Retrieves all orders for a specific customer")
+    @Operation(summary = "Get customer orders", description = "Retrieves a page of a customer's orders, newest first")
     public ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> getOrdersByCustomer(
             @Parameter(description = "Customer ID", required = true)
             @PathVariable @Positive Long customerId,
+            @Parameter(description = "nextCursor of the previous page; omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Page size")
+            @RequestParam(defaultValue = "20") @Min(1) @Max(100) int limit,
             HttpServletRequest httpRequest) {
         
-        List<OrderResponseDto> orders = orderService.getCustomerOrders(customerId);
+        OrderHistoryPage page = orderService.getCustomerOrders(customerId, cursor, limit);
+        List<OrderResponseDto> orders = page.getOrders();
         
         StandardApiResponse<List<OrderResponseDto>> apiResponse = StandardApiResponse
                 .success(orders, String.format("Retrieved %d orders for customer", orders.size()));
         apiResponse.setPath(httpRequest.getRequestURI());
+        apiResponse.setNextCursor(page.getNextCursor());
         
         return ResponseEntity.ok(apiResponse);
     }
 
     @GetMapping("/{orderId}/queue-status")
-    @Operation(summary = "Get queue position", description = "Gets the current queue position for an order")
+    @Operation(summary = "Get queue position",
+            description = "Gets the current queue position for an order; answers 304 if If-None-Match matches the queue's ETag")
     public ResponseEntity<StandardApiResponse<QueuePositionDto>> getOrderQueueStatus(
             @Parameter(description = "Order ID", required = true)
             @PathVariable @Positive Long orderId,
             @Parameter(description = "Customer ID", required = true)
             @RequestParam @Positive Long customerId,
-            HttpServletRequest httpRequest) {
-        
+            HttpServletRequest httpRequest,
+            WebRequest webRequest) {
+
+        Optional<String> eTag = orderETags.forQueueStatus(orderId, customerId);
+        if (eTag.isPresent() && webRequest.checkNotModified(eTag.get())) {
+            return null;
+        }
+
         QueuePositionDto position = orderService.getQueuePosition(orderId, customerId);
         
         StandardApiResponse<QueuePositionDto> apiResponse = StandardApiResponse
@@ -105,6 +158,19 @@ public class OrderController {
         return ResponseEntity.ok(apiResponse);
     }
 
+    @GetMapping(value = "/{orderId}/queue-status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream queue position",
+            description = "Streams queue position and ETA changes for an order as Server-Sent Events until it leaves the queue")
+    public SseEmitter streamOrderQueueStatus(
+            @Parameter(description = "Order ID", required = true)
+            @PathVariable @Positive Long orderId,
+            @Parameter(description = "Customer ID", required = true)
+            @RequestParam @Positive Long customerId) {
+
+        QueuePositionDto position = orderService.getQueuePosition(orderId, customerId);
+        return queuePositionStream.subscribe(customerId, position);
+    }
+
     @DeleteMapping("/{orderId}")
     @Operation(summary = "Cancel order", description = "Cancels an existing order")
     public ResponseEntity<StandardApiResponse<Void>> cancelOrder(
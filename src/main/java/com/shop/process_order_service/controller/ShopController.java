@@ -1,12 +1,22 @@
 package com.shop.process_order_service.controller;
 
 
+import com.shop.process_order_service.dto.BulkOrderStatusUpdateRequestDto;
+import com.shop.process_order_service.dto.BulkOrderStatusUpdateResponseDto;
+import com.shop.process_order_service.dto.NearbyShopDto;
 import com.shop.process_order_service.dto.OrderStatusUpdateDto;
 import com.shop.process_order_service.dto.StandardApiResponse;
 import com.shop.process_order_service.service.OrderService;
+import com.shop.process_order_service.service.ShopLocator;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatusCode;
@@ -14,14 +24,74 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/api/v1/shops")
 @RequiredArgsConstructor
 @Slf4j
+@Validated
 @Tag(name = "Shop Management", description = "APIs for managing shop-related operations")
 public class ShopController {
 
     private final OrderService orderService;
+    private final ShopLocator shopLocator;
+
+    @PutMapping("/{shopId}/orders/status/bulk")
+    @Operation(summary = "Update many order statuses",
+            description = "Applies many status updates to a shop's orders in one transaction and reports the outcome of each update")
+    public ResponseEntity<StandardApiResponse<BulkOrderStatusUpdateResponseDto>> updateOrderStatusesBulk(
+            @PathVariable Long shopId,
+            @Valid @RequestBody BulkOrderStatusUpdateRequestDto request,
+            HttpServletRequest httpRequest) {
+        log.info("Updating {} order statuses for shop: {}", request.getUpdates().size(), shopId);
+        BulkOrderStatusUpdateResponseDto response = orderService.updateOrderStatusesBulk(shopId, request.getUpdates());
+        StandardApiResponse<BulkOrderStatusUpdateResponseDto> apiResponse = StandardApiResponse
+                .success(response, String.format("Status updates processed: %d applied, %d rejected",
+                        response.getApplied(), response.getRejected()));
+        apiResponse.setPath(httpRequest.getRequestURI());
+        return ResponseEntity.ok(apiResponse);
+    }
+
+    @GetMapping("/nearby")
+    @Operation(summary = "Find nearby shops", description = "Lists the shops within a radius of a location, nearest first")
+    public ResponseEntity<StandardApiResponse<List<NearbyShopDto>>> findNearbyShops(
+            @Parameter(description = "Latitude of the location", required = true)
+            @RequestParam @DecimalMin("-90.0") @DecimalMax("90.0") double latitude,
+            @Parameter(description = "Longitude of the location", required = true)
+            @RequestParam @DecimalMin("-180.0") @DecimalMax("180.0") double longitude,
+            @Parameter(description = "Search radius in kilometres")
+            @RequestParam(defaultValue = "5") @DecimalMin(value = "0.0", inclusive = false) @DecimalMax("50.0") double radiusKm,
+            @Parameter(description = "Maximum number of shops")
+            @RequestParam(defaultValue = "10") @Min(1) @Max(50) int limit,
+            HttpServletRequest httpRequest) {
+        List<NearbyShopDto> shops = shopLocator.findNearby(latitude, longitude, radiusKm, limit);
+        StandardApiResponse<List<NearbyShopDto>> apiResponse = StandardApiResponse
+                .success(shops, String.format("Found %d shops nearby", shops.size()));
+        apiResponse.setPath(httpRequest.getRequestURI());
+        return ResponseEntity.ok(apiResponse);
+    }
+
+    @GetMapping("/nearby/shortest-wait")
+    @Operation(summary = "Find nearby shops with the shortest wait",
+            description = "Lists the shops within a radius of a location that can take an order, " +
+                    "ranked by when an order placed now would be ready: after both the trip there and the queue ahead")
+    public ResponseEntity<StandardApiResponse<List<NearbyShopDto>>> findShortestWaitShops(
+            @Parameter(description = "Latitude of the location", required = true)
+            @RequestParam @DecimalMin("-90.0") @DecimalMax("90.0") double latitude,
+            @Parameter(description = "Longitude of the location", required = true)
+            @RequestParam @DecimalMin("-180.0") @DecimalMax("180.0") double longitude,
+            @Parameter(description = "Search radius in kilometres")
+            @RequestParam(defaultValue = "5") @DecimalMin(value = "0.0", inclusive = false) @DecimalMax("50.0") double radiusKm,
+            @Parameter(description = "Maximum number of shops")
+            @RequestParam(defaultValue = "5") @Min(1) @Max(50) int limit,
+            HttpServletRequest httpRequest) {
+        List<NearbyShopDto> shops = shopLocator.findShortestWait(latitude, longitude, radiusKm, limit);
+        StandardApiResponse<List<NearbyShopDto>> apiResponse = StandardApiResponse
+                .success(shops, String.format("Found %d shops that can take an order", shops.size()));
+        apiResponse.setPath(httpRequest.getRequestURI());
+        return ResponseEntity.ok(apiResponse);
+    }
 
     @PutMapping("/{shopId}/orders/status")
     @Operation(summary = "Update order status", description = "Updates the status of order for a specific shop")
@@ -0,0 +1,17 @@
+package com.shop.process_order_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BatchOrderRequestDto {
+    public static final int MAX_ORDERS = 500;
+
+    @NotEmpty(message = "Orders cannot be empty")
+    @Size(max = MAX_ORDERS, message = "A batch cannot contain more than " + MAX_ORDERS + " orders")
+    private List<@Valid OrderRequestDto> orders;
+}
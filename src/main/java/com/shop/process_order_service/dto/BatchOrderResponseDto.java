@@ -0,0 +1,14 @@
+package com.shop.process_order_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchOrderResponseDto {
+    private int accepted;
+    private int rejected;
+    private List<BatchOrderResultDto> results;
+}
@@ -0,0 +1,16 @@
+package com.shop.process_order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchOrderResultDto {
+    private int index;
+    private boolean success;
+    private OrderResponseDto order;
+    private String errorCode;
+    private String message;
+}
@@ -0,0 +1,17 @@
+package com.shop.process_order_service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkOrderStatusUpdateRequestDto {
+    public static final int MAX_UPDATES = 200;
+
+    @NotEmpty(message = "Updates cannot be empty")
+    @Size(max = MAX_UPDATES, message = "A bulk update cannot contain more than " + MAX_UPDATES + " updates")
+    private List<@Valid OrderStatusUpdateDto> updates;
+}
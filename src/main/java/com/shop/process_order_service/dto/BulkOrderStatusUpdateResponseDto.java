@@ -0,0 +1,14 @@
+package com.shop.process_order_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BulkOrderStatusUpdateResponseDto {
+    private int applied;
+    private int rejected;
+    private List<OrderStatusUpdateResultDto> results;
+}
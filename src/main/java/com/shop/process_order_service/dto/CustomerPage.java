@@ -0,0 +1,16 @@
+package com.shop.process_order_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of the customer listing in id order. {@code nextCursor} is {@code null} on the last page.
+ */
+@Data
+@Builder
+public class CustomerPage {
+    private List<CustomerResponseDto> customers;
+    private String nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.shop.process_order_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Optional filters of the customer listing; {@code null} fields do not restrict the result.
+ */
+@Data
+@Builder
+public class CustomerSearchCriteria {
+    private String mobilePrefix;
+    private Integer minLoyaltyScore;
+    private Integer maxLoyaltyScore;
+}
@@ -0,0 +1,7 @@
+package com.shop.process_order_service.dto;
+
+/**
+ * Customer columns needed by read endpoints, selected without loading the entity.
+ */
+public record CustomerView(Long id, String name, String mobileNumber, String homeAddress, String workAddress) {
+}
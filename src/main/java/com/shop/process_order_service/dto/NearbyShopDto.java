@@ -0,0 +1,25 @@
+package com.shop.process_order_service.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearbyShopDto {
+    private Long shopId;
+    private String name;
+    private String address;
+    private Double latitude;
+    private Double longitude;
+    private Double distanceKm;
+    /** Minutes to get to the shop at the configured travel speed. */
+    private Integer travelMinutes;
+    /** Orders currently in the shop's queue. */
+    private Integer queueLength;
+    /** Estimated wait in minutes of an order placed now, before its own preparation time. */
+    private Integer estimatedWaitMinutes;
+}
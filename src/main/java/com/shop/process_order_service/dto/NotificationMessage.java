@@ -0,0 +1,20 @@
+package com.shop.process_order_service.dto;
+
+import com.shop.process_order_service.entity.NotificationType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationMessage {
+    private Long id;
+    private NotificationType type;
+    private Long orderId;
+    private String recipient;
+    private String message;
+    private int attempts;
+}
@@ -0,0 +1,34 @@
+package com.shop.process_order_service.dto;
+
+import com.shop.process_order_service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a customer's order history: the page continues with the orders that sort after
+ * this one in {@code (createdAt DESC, id DESC)} order. Clients receive it as an opaque string.
+ */
+public record OrderHistoryCursor(LocalDateTime createdAt, Long orderId) {
+
+    public static OrderHistoryCursor decode(String cursor) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = decoded.lastIndexOf('|');
+            if (separator < 0) {
+                throw new InvalidCursorException(cursor);
+            }
+            return new OrderHistoryCursor(LocalDateTime.parse(decoded.substring(0, separator)),
+                    Long.valueOf(decoded.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((createdAt + "|" + orderId).getBytes(StandardCharsets.UTF_8));
+    }
+}
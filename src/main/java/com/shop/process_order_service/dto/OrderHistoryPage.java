@@ -0,0 +1,17 @@
+package com.shop.process_order_service.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * One page of a customer's order history, newest first. {@code nextCursor} is {@code null} on
+ * the last page.
+ */
+@Data
+@Builder
+public class OrderHistoryPage {
+    private List<OrderResponseDto> orders;
+    private String nextCursor;
+}
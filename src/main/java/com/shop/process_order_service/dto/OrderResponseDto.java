@@ -1,5 +1,6 @@
 package com.shop.process_order_service.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.Builder;
 
@@ -21,6 +22,9 @@ public class OrderResponseDto {
     private Integer estimatedWaitTime;
     private List<OrderItemResponseDto> items;
     private LocalDateTime createdAt;
+    // Read in the same query as the rest of the order; becomes the response's ETag
+    @JsonIgnore
+    private Long version;
     
 }
 
@@ -0,0 +1,85 @@
+package com.shop.process_order_service.dto;
+
+import com.shop.process_order_service.entity.OrderStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * One order joined with one of its items, selected straight into this record so that read
+ * endpoints never hydrate entities. An order without items yields a single row whose item
+ * fields are {@code null}.
+ */
+public record OrderRow(Long orderId, String customerName, String coffeeShopName, OrderStatus status,
+                       BigDecimal totalAmount, Integer queuePosition, Integer estimatedWaitTime,
+                       LocalDateTime createdAt, Long version, String itemName, Integer quantity, BigDecimal unitPrice,
+                       BigDecimal totalPrice, String notes) {
+
+    /**
+     * Groups rows that are sorted by order into one response per order.
+     */
+    public static List<OrderResponseDto> toResponses(List<OrderRow> rows) {
+        List<OrderResponseDto> orders = new ArrayList<>();
+        forEachResponse(rows.stream(), orders::add);
+        return orders;
+    }
+
+    /**
+     * Groups rows that are sorted by order into one response per order and hands each to
+     * {@code sink} as soon as its last row has been read, so only one order is held at a time.
+     *
+     * @return the number of orders passed to {@code sink}
+     */
+    public static long forEachResponse(Stream<OrderRow> rows, Consumer<OrderResponseDto> sink) {
+        long count = 0;
+        OrderResponseDto current = null;
+        for (Iterator<OrderRow> iterator = rows.iterator(); iterator.hasNext(); ) {
+            OrderRow row = iterator.next();
+            if (current == null || !current.getOrderId().equals(row.orderId())) {
+                if (current != null) {
+                    sink.accept(current);
+                    count++;
+                }
+                current = row.toResponse();
+            }
+            if (row.quantity() != null) {
+                current.getItems().add(row.toItemResponse());
+            }
+        }
+        if (current != null) {
+            sink.accept(current);
+            count++;
+        }
+        return count;
+    }
+
+    private OrderResponseDto toResponse() {
+        return OrderResponseDto.builder()
+                .orderId(orderId)
+                .customerName(customerName)
+                .coffeeShopName(coffeeShopName)
+                .status(status)
+                .totalAmount(totalAmount)
+                .queuePosition(queuePosition)
+                .estimatedWaitTime(estimatedWaitTime)
+                .createdAt(createdAt)
+                .version(version)
+                .items(new ArrayList<>())
+                .build();
+    }
+
+    private OrderItemResponseDto toItemResponse() {
+        return OrderItemResponseDto.builder()
+                .itemName(itemName)
+                .quantity(quantity)
+                .unitPrice(unitPrice)
+                .totalPrice(totalPrice)
+                .notes(notes)
+                .build();
+    }
+}
@@ -0,0 +1,19 @@
+package com.shop.process_order_service.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.shop.process_order_service.entity.OrderStatus;
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatusUpdateResultDto {
+    private int index;
+    private Long orderId;
+    private boolean success;
+    private OrderStatus previousStatus;
+    private OrderStatus newStatus;
+    private String errorCode;
+    private String message;
+}
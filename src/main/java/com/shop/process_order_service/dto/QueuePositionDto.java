@@ -11,6 +11,7 @@ import lombok.NoArgsConstructor;
 @AllArgsConstructor
 public class QueuePositionDto {
     private Long orderId;
+    private Integer lane;
     private Integer currentPosition;
     private Integer totalInQueue;
     private Integer estimatedWaitTime;
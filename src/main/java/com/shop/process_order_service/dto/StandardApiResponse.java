@@ -19,6 +19,8 @@ public class StandardApiResponse<T> {
     private String errorCode;
     private LocalDateTime timestamp;
     private String path;
+    /** Cursor of the next page for paginated responses, absent on the last page. */
+    private String nextCursor;
     
     public static <T> StandardApiResponse<T> success(T data) {
         return StandardApiResponse.<T>builder()
@@ -4,18 +4,28 @@ import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import java.time.LocalTime;
 import java.util.List;
 
 @Entity
 @Table(name = "coffee_shops")
+@EntityListeners(CoffeeShopChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "coffee-shops")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class CoffeeShop {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "coffee_shops_seq")
+    @GenericGenerator(name = "coffee_shops_seq", type = PooledSequenceGenerator.class,
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "coffee_shops_seq"))
     private Long id;
     
     @Column(nullable = false)
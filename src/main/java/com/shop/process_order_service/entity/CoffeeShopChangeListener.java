@@ -0,0 +1,49 @@
+package com.shop.process_order_service.entity;
+
+import com.shop.process_order_service.service.ShopLocator;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Updates the shop locator once a new, changed or removed coffee shop has been committed.
+ * <p>
+ * Hibernate instantiates this listener while the entity manager factory is being built, so the
+ * locator is looked up lazily to avoid a cycle through {@code CoffeeShopRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+public class CoffeeShopChangeListener {
+
+    private final ObjectProvider<ShopLocator> shopLocator;
+
+    @PostPersist
+    @PostUpdate
+    public void onShopSaved(CoffeeShop shop) {
+        afterCommit(() -> shopLocator.getObject().shopChanged(shop));
+    }
+
+    @PostRemove
+    public void onShopRemoved(CoffeeShop shop) {
+        Long shopId = shop.getId();
+        afterCommit(() -> shopLocator.getObject().shopRemoved(shopId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.shop.process_order_service.entity;
+
+import com.shop.process_order_service.service.MenuCatalog;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops the cached menu snapshot of a shop once a change to one of its menu items
+ * (price, availability, new or removed items) has been committed.
+ * <p>
+ * Hibernate instantiates this listener while the entity manager factory is being built, so the
+ * catalog is looked up lazily to avoid a cycle through {@code MenuItemRepository}.
+ */
+@Component
+@RequiredArgsConstructor
+public class MenuItemChangeListener {
+
+    private final ObjectProvider<MenuCatalog> menuCatalog;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onMenuItemChanged(MenuItem menuItem) {
+        if (menuItem.getCoffeeShop() == null) {
+            return;
+        }
+        Long shopId = menuItem.getCoffeeShop().getId();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    menuCatalog.getObject().evict(shopId);
+                }
+            });
+        } else {
+            menuCatalog.getObject().evict(shopId);
+        }
+    }
+}
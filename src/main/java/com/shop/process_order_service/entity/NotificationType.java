@@ -0,0 +1,7 @@
+package com.shop.process_order_service.entity;
+
+public enum NotificationType {
+    ORDER_CONFIRMATION,
+    ORDER_CANCELLATION,
+    QUEUE_UPDATE
+}
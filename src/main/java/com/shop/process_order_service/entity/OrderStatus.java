@@ -6,6 +6,12 @@ public enum OrderStatus {
     CONFIRMED,
     PROCESSING,
     CANCELLED,
-    COMPLETED
-}
+    COMPLETED;
 
+    /**
+     * Whether an order in this status still occupies a place in its shop's queue.
+     */
+    public boolean isActive() {
+        return this == PENDING || this == CONFIRMED || this == PROCESSING;
+    }
+}
@@ -1,8 +1,12 @@
 package com.shop.process_order_service.exception;
 
+import com.shop.process_order_service.dto.NearbyShopDto;
 import com.shop.process_order_service.dto.StandardApiResponse;
+import com.shop.process_order_service.service.ShopLocator;
 import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -12,12 +16,16 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class GlobalExceptionHandler {
 
+    private final ShopLocator shopLocator;
+
     @ExceptionHandler(OrderNotFoundException.class)
     public ResponseEntity<StandardApiResponse<Void>> handleOrderNotFoundException(
             OrderNotFoundException ex, HttpServletRequest request) {
@@ -45,18 +53,49 @@ public class GlobalExceptionHandler {
 }
 
 
+    /**
+     * Answers 503 with the shops near the full one that could take the order soonest as data.
+     */
     @ExceptionHandler(QueueFullException.class)
-    public ResponseEntity<StandardApiResponse<Void>> handleQueueFull(QueueFullException e) {
+    public ResponseEntity<StandardApiResponse<List<NearbyShopDto>>> handleQueueFull(QueueFullException e) {
         log.error("Queue full: ", e);
-        StandardApiResponse<Void>  error = StandardApiResponse.<Void>builder()
+        List<NearbyShopDto> alternatives = e.getShopId() == null ? List.of() : shopLocator.findAlternatives(e.getShopId());
+        StandardApiResponse<List<NearbyShopDto>> error = StandardApiResponse.<List<NearbyShopDto>>builder()
                 .timestamp(LocalDateTime.now())
                 .success(false)
                 .errorCode("QUEUE_FULL")
                 .message(e.getMessage())
+                .data(alternatives)
                 .build();
         return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<StandardApiResponse<Void>> handleConcurrentModification(
+            OptimisticLockingFailureException e, HttpServletRequest request) {
+        log.warn("Concurrent modification on {}: {}", request.getRequestURI(), e.getMessage());
+        StandardApiResponse<Void> error = StandardApiResponse.<Void>builder()
+                .timestamp(LocalDateTime.now())
+                .success(false)
+                .errorCode("CONCURRENT_MODIFICATION")
+                .message("The order was changed by another request. Please reload it and try again.")
+                .path(request.getRequestURI())
+                .build();
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
+
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StandardApiResponse<Void>> handleInvalidCursor(InvalidCursorException e) {
+        log.warn("Invalid cursor: {}", e.getMessage());
+        StandardApiResponse<Void> error = StandardApiResponse.<Void>builder()
+                .timestamp(LocalDateTime.now())
+                .success(false)
+                .errorCode(e.getErrorCode())
+                .message(e.getMessage())
+                .build();
+        return ResponseEntity.badRequest().body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<StandardApiResponse<Void>> handleValidationExceptions(MethodArgumentNotValidException e) {
         Map<String, String> errors = new HashMap<>();
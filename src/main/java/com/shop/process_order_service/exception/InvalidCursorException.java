@@ -0,0 +1,8 @@
+package com.shop.process_order_service.exception;
+
+public class InvalidCursorException extends BusinessException {
+
+    public InvalidCursorException(String cursor) {
+        super("Invalid page cursor: " + cursor, "INVALID_CURSOR");
+    }
+}
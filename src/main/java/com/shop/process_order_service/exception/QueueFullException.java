@@ -1,7 +1,18 @@
 package com.shop.process_order_service.exception;
 
+import lombok.Getter;
+
+@Getter
 public class QueueFullException extends RuntimeException {
+    /** The shop whose queue is full, used to suggest alternatives; may be {@code null}. */
+    private final Long shopId;
+
     public QueueFullException(String message) {
+        this(message, null);
+    }
+
+    public QueueFullException(String message, Long shopId) {
         super(message);
+        this.shopId = shopId;
     }
 }
@@ -2,6 +2,7 @@ package com.shop.process_order_service.mapper;
 
 import com.shop.process_order_service.dto.CustomerRequestDto;
 import com.shop.process_order_service.dto.CustomerResponseDto;
+import com.shop.process_order_service.dto.CustomerView;
 import com.shop.process_order_service.entity.Customer;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -16,6 +17,10 @@ public interface CustomerMapper {
     @Mapping(target = "workAddress", source = "workAddress")
     CustomerResponseDto toDto(Customer customer);
 
+    @Mapping(target = "phone", source = "mobileNumber")
+    @Mapping(target = "email", ignore = true)
+    CustomerResponseDto toDto(CustomerView customer);
+
     @Mapping(source = "phone", target = "mobileNumber")
     @Mapping(source = "address", target = "homeAddress")
     @Mapping(target = "id", ignore = true)
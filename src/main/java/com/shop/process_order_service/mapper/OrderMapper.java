@@ -30,6 +30,8 @@ public interface OrderMapper {
     @Mapping(target = "estimatedWaitTime", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
+    @Mapping(target = "processingStartedAt", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Order toEntity(OrderRequestDto dto);
 
     @Mapping(source = "id", target = "orderId")
@@ -0,0 +1,87 @@
+package com.shop.process_order_service.repository;
+
+import com.shop.process_order_service.dto.CustomerSearchCriteria;
+import com.shop.process_order_service.dto.CustomerView;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * Lists customers in id order with optional filters. The SQL contains only the conditions that
+ * are set, so each combination gets a plan that can use its index: {@code idx_customers_mobile_prefix}
+ * for a mobile number prefix and {@code idx_customers_loyalty_score} for a loyalty score range.
+ */
+@Repository
+public class CustomerSearchRepository {
+
+    private static final String SELECT_SQL =
+            "SELECT id, name, mobile_number, home_address, work_address FROM customers";
+
+    private static final RowMapper<CustomerView> CUSTOMER_VIEW = (rs, rowNum) -> new CustomerView(
+            rs.getLong("id"),
+            rs.getString("name"),
+            rs.getString("mobile_number"),
+            rs.getString("home_address"),
+            rs.getString("work_address"));
+
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public CustomerSearchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.streamingJdbcTemplate.setFetchSize(STREAM_FETCH_SIZE);
+    }
+
+    /**
+     * @param afterId the id of the last customer of the previous page, or {@code null} for the first page
+     */
+    public List<CustomerView> findPage(CustomerSearchCriteria criteria, Long afterId, int limit) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT_SQL + where(criteria, afterId, args) + " ORDER BY id LIMIT ?";
+        args.add(limit);
+        return jdbcTemplate.query(sql, CUSTOMER_VIEW, args.toArray());
+    }
+
+    /**
+     * All matching customers in id order, read from a database cursor in chunks. Must be
+     * consumed and closed inside a transaction.
+     */
+    public Stream<CustomerView> stream(CustomerSearchCriteria criteria) {
+        List<Object> args = new ArrayList<>();
+        String sql = SELECT_SQL + where(criteria, null, args) + " ORDER BY id";
+        return streamingJdbcTemplate.queryForStream(sql, CUSTOMER_VIEW, args.toArray());
+    }
+
+    private static String where(CustomerSearchCriteria criteria, Long afterId, List<Object> args) {
+        List<String> conditions = new ArrayList<>();
+        if (afterId != null) {
+            conditions.add("id > ?");
+            args.add(afterId);
+        }
+        if (criteria.getMobilePrefix() != null) {
+            conditions.add("mobile_number LIKE ? ESCAPE '\\'");
+            args.add(escapeLike(criteria.getMobilePrefix()) + "%");
+        }
+        if (criteria.getMinLoyaltyScore() != null) {
+            conditions.add("loyalty_score >= ?");
+            args.add(criteria.getMinLoyaltyScore());
+        }
+        if (criteria.getMaxLoyaltyScore() != null) {
+            conditions.add("loyalty_score <= ?");
+            args.add(criteria.getMaxLoyaltyScore());
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -2,13 +2,19 @@ package com.shop.process_order_service.repository;
 
 
 import com.shop.process_order_service.entity.MenuItem;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
 
 @Repository
 public interface MenuItemRepository extends JpaRepository<MenuItem, Long> {
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<MenuItem> findByCoffeeShopIdAndAvailableTrue(Long coffeeShopId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<MenuItem> findByCoffeeShopId(Long coffeeShopId);
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.shop.process_order_service.repository;
+
+import com.shop.process_order_service.dto.NotificationMessage;
+import com.shop.process_order_service.entity.NotificationType;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Stores notifications in the {@code notification_outbox} table. Rows are inserted by the
+ * transaction that changes the order and claimed in batches by the dispatcher. A claim selects
+ * due rows with {@code FOR UPDATE SKIP LOCKED} and moves their {@code next_attempt_at} to the end
+ * of a lease in the same statement, so several dispatchers never deliver the same row while the
+ * lease lasts and no row lock is held during delivery.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NotificationOutboxRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO notification_outbox (notification_type, order_id, recipient, message, status, attempts, " +
+            "created_at, next_attempt_at) VALUES (?, ?, ?, ?, 'PENDING', 0, ?, ?)";
+
+    private static final String CLAIM_SQL =
+            "UPDATE notification_outbox SET next_attempt_at = ? WHERE id IN (" +
+            "SELECT id FROM notification_outbox WHERE status = 'PENDING' AND next_attempt_at <= ? " +
+            "ORDER BY next_attempt_at, id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id, notification_type, order_id, recipient, message, attempts";
+
+    private static final String RELEASE_SQL =
+            "UPDATE notification_outbox SET next_attempt_at = ? WHERE id = ? AND status = 'PENDING'";
+
+    private static final String MARK_SENT_SQL =
+            "UPDATE notification_outbox SET status = 'SENT', attempts = attempts + 1, sent_at = ? WHERE id = ?";
+
+    private static final String MARK_RETRY_SQL =
+            "UPDATE notification_outbox SET status = ?, attempts = ?, next_attempt_at = ?, last_error = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void saveAll(Collection<NotificationMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setString(1, message.getType().name());
+            ps.setLong(2, message.getOrderId());
+            ps.setString(3, message.getRecipient());
+            ps.setString(4, message.getMessage());
+            ps.setTimestamp(5, now);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Claims up to {@code limit} due notifications until {@code leaseUntil}, skipping rows that
+     * other dispatchers are claiming at the same moment.
+     */
+    public List<NotificationMessage> claimPending(int limit, LocalDateTime leaseUntil) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        return jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> NotificationMessage.builder()
+                        .id(rs.getLong("id"))
+                        .type(NotificationType.valueOf(rs.getString("notification_type")))
+                        .orderId(rs.getLong("order_id"))
+                        .recipient(rs.getString("recipient"))
+                        .message(rs.getString("message"))
+                        .attempts(rs.getInt("attempts"))
+                        .build(),
+                Timestamp.valueOf(leaseUntil), now, limit);
+    }
+
+    /**
+     * Ends the lease of claimed notifications that were not delivered, so the next poll claims
+     * them again.
+     */
+    public void releaseClaims(Collection<NotificationMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setTimestamp(1, now);
+            ps.setLong(2, message.getId());
+        });
+    }
+
+    public void markSent(Collection<NotificationMessage> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(MARK_SENT_SQL, messages, messages.size(), (ps, message) -> {
+            ps.setTimestamp(1, now);
+            ps.setLong(2, message.getId());
+        });
+    }
+
+    /**
+     * Records a failed attempt. The row is retried at {@code nextAttemptAt}, or marked FAILED
+     * for good when {@code nextAttemptAt} is {@code null}.
+     */
+    public void markFailed(NotificationMessage message, LocalDateTime nextAttemptAt, String error) {
+        jdbcTemplate.update(MARK_RETRY_SQL,
+                nextAttemptAt == null ? "FAILED" : "PENDING",
+                message.getAttempts() + 1,
+                Timestamp.valueOf(nextAttemptAt == null ? LocalDateTime.now() : nextAttemptAt),
+                error,
+                message.getId());
+    }
+}
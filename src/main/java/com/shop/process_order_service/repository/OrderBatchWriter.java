@@ -0,0 +1,127 @@
+package com.shop.process_order_service.repository;
+
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.entity.OrderItem;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes new orders and their items with JDBC batch statements instead of one
+ * persist per entity. Ids are reserved up front from the same pooled sequences Hibernate
+ * uses, one {@code nextval} per block of {@code app.persistence.id-allocation-size} ids,
+ * so that order items can reference their order without reading generated keys back.
+ */
+@Repository
+@RequiredArgsConstructor
+public class OrderBatchWriter {
+
+    private static final int JDBC_BATCH_SIZE = 500;
+
+    private static final String INSERT_ORDER_SQL =
+            "INSERT INTO orders (id, customer_id, coffee_shop_id, status, total_amount, " +
+            "queue_position, estimated_wait_time, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+
+    private static final String INSERT_ORDER_ITEM_SQL =
+            "INSERT INTO order_items (id, order_id, menu_item_id, quantity, unit_price, total_price, notes) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INCREMENT_LOYALTY_SQL =
+            "UPDATE customers SET loyalty_score = loyalty_score + ?, updated_at = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.persistence.id-allocation-size:50}")
+    private int idAllocationSize;
+
+    /**
+     * Assigns ids and timestamps to the given orders and their items, then inserts them.
+     */
+    public void insertOrders(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp timestamp = Timestamp.valueOf(now);
+
+        Iterator<Long> orderIds = nextIds("orders_seq", orders.size()).iterator();
+        List<OrderItem> items = orders.stream()
+                .flatMap(order -> order.getOrderItems().stream())
+                .toList();
+        Iterator<Long> itemIds = nextIds("order_items_seq", items.size()).iterator();
+
+        for (Order order : orders) {
+            order.setId(orderIds.next());
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            order.setVersion(0L);
+        }
+        for (OrderItem item : items) {
+            item.setId(itemIds.next());
+        }
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_SQL, orders, JDBC_BATCH_SIZE, (ps, order) -> {
+            ps.setLong(1, order.getId());
+            ps.setLong(2, order.getCustomer().getId());
+            ps.setLong(3, order.getCoffeeShop().getId());
+            ps.setString(4, order.getStatus().name());
+            ps.setBigDecimal(5, order.getTotalAmount());
+            ps.setInt(6, order.getQueuePosition());
+            ps.setInt(7, order.getEstimatedWaitTime());
+            ps.setTimestamp(8, timestamp);
+            ps.setTimestamp(9, timestamp);
+        });
+
+        jdbcTemplate.batchUpdate(INSERT_ORDER_ITEM_SQL, items, JDBC_BATCH_SIZE, (ps, item) -> {
+            ps.setLong(1, item.getId());
+            ps.setLong(2, item.getOrder().getId());
+            ps.setLong(3, item.getMenuItem().getId());
+            ps.setInt(4, item.getQuantity());
+            ps.setBigDecimal(5, item.getUnitPrice());
+            ps.setBigDecimal(6, item.getTotalPrice());
+            ps.setString(7, item.getNotes());
+        });
+    }
+
+    /**
+     * Adds the given number of points to each customer's loyalty score in one batch.
+     */
+    public void incrementLoyaltyScores(Map<Long, Integer> pointsByCustomerId) {
+        if (pointsByCustomerId.isEmpty()) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INCREMENT_LOYALTY_SQL, pointsByCustomerId.entrySet(), JDBC_BATCH_SIZE,
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setTimestamp(2, timestamp);
+                    ps.setLong(3, entry.getKey());
+                });
+    }
+
+    private List<Long> nextIds(String sequenceName, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        int blocks = (count + idAllocationSize - 1) / idAllocationSize;
+        List<Long> hiValues = jdbcTemplate.queryForList(
+                "SELECT nextval('" + sequenceName + "') FROM generate_series(1, ?)", Long.class, blocks);
+
+        List<Long> ids = new ArrayList<>(count);
+        for (Long hi : hiValues) {
+            for (long id = hi - idAllocationSize + 1; id <= hi && ids.size() < count; id++) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
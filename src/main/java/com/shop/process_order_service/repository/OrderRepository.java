@@ -1,41 +1,105 @@
 package com.shop.process_order_service.repository;
 
 
+import com.shop.process_order_service.dto.OrderHistoryCursor;
+import com.shop.process_order_service.dto.OrderRow;
 import com.shop.process_order_service.entity.Order;
 import com.shop.process_order_service.entity.OrderStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
-    @Query("select o from Order o left join fetch o.customer where o.customer.id = :customerId order by o.createdAt desc")
-    List<Order> findOrdersWithCustomerByCustomerId(@Param("customerId") Long customerId);
+    /**
+     * Keys of the first page of a customer's order history, newest first, read from
+     * {@code idx_orders_customer_created} alone.
+     */
+    @Query("SELECT new com.shop.process_order_service.dto.OrderHistoryCursor(o.createdAt, o.id) FROM Order o " +
+            "WHERE o.customer.id = :customerId " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHistoryCursor> findCustomerHistoryKeys(@Param("customerId") Long customerId, Limit limit);
+
+    /**
+     * Keys of the page of a customer's order history that continues after the order identified
+     * by {@code createdAt} and {@code id}.
+     */
+    @Query("SELECT new com.shop.process_order_service.dto.OrderHistoryCursor(o.createdAt, o.id) FROM Order o " +
+            "WHERE o.customer.id = :customerId AND o.createdAt <= :createdAt " +
+            "AND (o.createdAt < :createdAt OR o.id < :id) " +
+            "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderHistoryCursor> findCustomerHistoryKeysAfter(@Param("customerId") Long customerId,
+                                                          @Param("createdAt") LocalDateTime createdAt,
+                                                          @Param("id") Long id,
+                                                          Limit limit);
+
+    /**
+     * The given orders with their customer and shop names and their items, one row per item,
+     * newest order first. Nothing is loaded into the persistence context.
+     */
+    @Query("SELECT new com.shop.process_order_service.dto.OrderRow(o.id, c.name, s.name, o.status, " +
+            "o.totalAmount, o.queuePosition, o.estimatedWaitTime, o.createdAt, o.version, " +
+            "m.name, i.quantity, i.unitPrice, i.totalPrice, i.notes) " +
+            "FROM Order o JOIN o.customer c JOIN o.coffeeShop s " +
+            "LEFT JOIN o.orderItems i LEFT JOIN i.menuItem m " +
+            "WHERE o.id IN :orderIds " +
+            "ORDER BY o.createdAt DESC, o.id DESC, i.id")
+    List<OrderRow> findOrderRows(@Param("orderIds") Collection<Long> orderIds);
 
     List<Order> findByCoffeeShopIdAndStatusInOrderByQueuePosition(
             Long coffeeShopId, List<OrderStatus> statuses);
 
-    @Query("SELECT o FROM Order o WHERE o.coffeeShop.id = :shopId " +
-            "AND o.status IN ('PENDING', 'CONFIRMED', 'IN_PROGRESS') " +
-            "ORDER BY o.queuePosition")
+    /**
+     * A customer's whole order history as {@link #findOrderRows(Collection)} rows, newest order
+     * first, fetched from the database cursor in chunks. Must be consumed and closed inside a
+     * transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.shop.process_order_service.dto.OrderRow(o.id, c.name, s.name, o.status, " +
+            "o.totalAmount, o.queuePosition, o.estimatedWaitTime, o.createdAt, o.version, " +
+            "m.name, i.quantity, i.unitPrice, i.totalPrice, i.notes) " +
+            "FROM Order o JOIN o.customer c JOIN o.coffeeShop s " +
+            "LEFT JOIN o.orderItems i LEFT JOIN i.menuItem m " +
+            "WHERE o.customer.id = :customerId " +
+            "ORDER BY o.createdAt DESC, o.id DESC, i.id")
+    Stream<OrderRow> streamCustomerHistoryRows(@Param("customerId") Long customerId);
+
+    boolean existsByCustomerId(Long customerId);
+
+    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.coffeeShop.id = :shopId " +
+            "AND o.status IN ('PENDING', 'CONFIRMED', 'PROCESSING') " +
+            "ORDER BY o.createdAt, o.id")
     List<Order> findActiveOrdersByShop(@Param("shopId") Long shopId);
 
     @Query("SELECT COUNT(o) FROM Order o WHERE o.coffeeShop.id = :shopId " +
-            "AND o.status IN ('PENDING', 'CONFIRMED', 'IN_PROGRESS')")
+            "AND o.status IN ('PENDING', 'CONFIRMED', 'PROCESSING')")
     Integer countActiveOrdersByShop(@Param("shopId") Long shopId);
 
-    @Query("SELECT o FROM Order o LEFT JOIN FETCH o.orderItems WHERE o.id = :orderId")
-    Optional<Order> findByIdWithOrderItems(@Param("orderId") Long orderId);
 
 
 
     Optional<Order> findByIdAndCustomerId(Long orderId, Long customerId);
 
+    @Query("SELECT o.version FROM Order o WHERE o.id = :orderId")
+    Optional<Long> findVersionById(@Param("orderId") Long orderId);
+
+    @Query("SELECT o.status FROM Order o WHERE o.id = :orderId")
+    Optional<OrderStatus> findStatusById(@Param("orderId") Long orderId);
+
+    List<Order> findByCoffeeShopIdAndIdIn(Long shopId, Collection<Long> orderIds);
+
     @Query("SELECT o FROM Order o WHERE o.id IN :orderId AND o.coffeeShop.id = :shopId")
     Order findByIdInAndCoffeeShopId(Long orderId, Long shopId);
 
@@ -0,0 +1,50 @@
+package com.shop.process_order_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes the learned preparation time of each menu item.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PrepTimeEstimateStore {
+
+    private static final String SELECT_ALL_SQL =
+            "SELECT menu_item_id, average_seconds, sample_count FROM prep_time_estimates";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO prep_time_estimates (menu_item_id, average_seconds, sample_count, updated_at) " +
+            "VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (menu_item_id) DO UPDATE SET average_seconds = EXCLUDED.average_seconds, " +
+            "sample_count = EXCLUDED.sample_count, updated_at = EXCLUDED.updated_at";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public record PrepTimeEstimate(Long menuItemId, double averageSeconds, long sampleCount) {
+    }
+
+    public List<PrepTimeEstimate> findAll() {
+        return jdbcTemplate.query(SELECT_ALL_SQL, (rs, rowNum) -> new PrepTimeEstimate(
+                rs.getLong("menu_item_id"), rs.getDouble("average_seconds"), rs.getLong("sample_count")));
+    }
+
+    public void saveAll(Collection<PrepTimeEstimate> estimates) {
+        if (estimates.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, estimates, estimates.size(), (ps, estimate) -> {
+            ps.setLong(1, estimate.menuItemId());
+            ps.setDouble(2, estimate.averageSeconds());
+            ps.setLong(3, estimate.sampleCount());
+            ps.setTimestamp(4, now);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.shop.process_order_service.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Reads and advances the queue version of each shop, a counter that every transaction changing
+ * the shop's queue increments while it holds the shop's advisory lock. An instance whose last
+ * applied version equals the stored one has already seen every committed change to that queue.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ShopQueueVersionStore {
+
+    private static final String SELECT_SQL = "SELECT version FROM shop_queue_versions WHERE shop_id = ?";
+
+    private static final String INCREMENT_SQL =
+            "INSERT INTO shop_queue_versions (shop_id, version) VALUES (?, 1) " +
+            "ON CONFLICT (shop_id) DO UPDATE SET version = shop_queue_versions.version + 1 " +
+            "RETURNING version";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return the shop's queue version, {@code 0} if its queue has never been changed
+     */
+    public long current(Long shopId) {
+        List<Long> versions = jdbcTemplate.queryForList(SELECT_SQL, Long.class, shopId);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    /**
+     * @return the shop's new queue version
+     */
+    public long increment(Long shopId) {
+        return jdbcTemplate.queryForObject(INCREMENT_SQL, Long.class, shopId);
+    }
+}
@@ -0,0 +1,132 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the number of active orders per shop in memory so that admission control does not
+ * have to count them in the database for every new order.
+ * <p>
+ * A shop's count is loaded from {@link OrderRepository#countActiveOrdersByShop(Long)} the first
+ * time it is needed and then maintained with compare-and-set on create, cancel and complete.
+ * Changes made inside a transaction are undone if it rolls back. A periodic reconciliation
+ * against the database corrects drift, for example from orders written by other instances.
+ * It recounts each shop while holding the shop's {@link ShopQueueLock}, so no admission or
+ * release of that shop can commit between the count and the reset.
+ */
+@Component
+@Slf4j
+public class ActiveOrderCounter {
+
+    private final OrderRepository orderRepository;
+    private final ShopQueueLock shopQueueLock;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentMap<Long, ShopCount> counts = new ConcurrentHashMap<>();
+
+    public ActiveOrderCounter(OrderRepository orderRepository,
+                              ShopQueueLock shopQueueLock,
+                              PlatformTransactionManager transactionManager) {
+        this.orderRepository = orderRepository;
+        this.shopQueueLock = shopQueueLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public int get(Long shopId) {
+        return countFor(shopId).active.get();
+    }
+
+    /**
+     * Takes a place in the shop's queue if fewer than {@code maxQueueSize} orders are active.
+     *
+     * @return the active order count including the new order, or {@code -1} if the queue is full
+     */
+    public int tryAcquire(Long shopId, int maxQueueSize) {
+        ShopCount count = countFor(shopId);
+        int current;
+        do {
+            current = count.active.get();
+            if (current >= maxQueueSize) {
+                return -1;
+            }
+        } while (!count.active.compareAndSet(current, current + 1));
+
+        count.inFlight.incrementAndGet();
+        TransactionCallbacks.afterCompletion(committed -> {
+            count.inFlight.decrementAndGet();
+            if (!committed) {
+                decrement(count);
+            }
+        });
+        return current + 1;
+    }
+
+    /**
+     * Frees a place in the shop's queue once the surrounding transaction commits.
+     */
+    public void release(Long shopId) {
+        release(shopId, 1);
+    }
+
+    /**
+     * Frees {@code orders} places in the shop's queue once the surrounding transaction commits.
+     */
+    public void release(Long shopId, int orders) {
+        ShopCount count = countFor(shopId);
+        TransactionCallbacks.afterCommit(() -> decrement(count, orders));
+    }
+
+    /**
+     * Reloads one shop's count from the database, for callers that hold the shop's queue lock
+     * across instances and therefore see every committed order.
+     */
+    public void resync(Long shopId) {
+        ShopCount count = countFor(shopId);
+        count.active.set(orderRepository.countActiveOrdersByShop(shopId) + count.inFlight.get());
+    }
+
+    /**
+     * Recounts every known shop, each in its own short transaction under the shop's queue lock.
+     */
+    @Scheduled(fixedDelayString = "${app.queue.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        for (Long shopId : counts.keySet()) {
+            transactionTemplate.executeWithoutResult(status -> {
+                shopQueueLock.lock(shopId);
+                ShopCount count = counts.get(shopId);
+                int expected = orderRepository.countActiveOrdersByShop(shopId) + count.inFlight.get();
+                int previous = count.active.getAndSet(expected);
+                if (previous != expected) {
+                    log.warn("Active order count for shop {} drifted: in memory {}, reconciled to {}",
+                            shopId, previous, expected);
+                }
+            });
+        }
+    }
+
+    private ShopCount countFor(Long shopId) {
+        return counts.computeIfAbsent(shopId,
+                id -> new ShopCount(new AtomicInteger(orderRepository.countActiveOrdersByShop(id))));
+    }
+
+    private static void decrement(ShopCount count) {
+        decrement(count, 1);
+    }
+
+    private static void decrement(ShopCount count, int orders) {
+        count.active.getAndUpdate(value -> Math.max(0, value - orders));
+    }
+
+    private record ShopCount(AtomicInteger active, AtomicInteger inFlight) {
+        ShopCount(AtomicInteger active) {
+            this(active, new AtomicInteger());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.BatchOrderResponseDto;
+import com.shop.process_order_service.dto.BatchOrderResultDto;
+import com.shop.process_order_service.dto.OrderItemDto;
+import com.shop.process_order_service.dto.OrderRequestDto;
+import com.shop.process_order_service.entity.*;
+import com.shop.process_order_service.exception.BusinessException;
+import com.shop.process_order_service.exception.CustomerNotFoundException;
+import com.shop.process_order_service.exception.QueueFullException;
+import com.shop.process_order_service.exception.ShopNotFoundException;
+import com.shop.process_order_service.mapper.OrderMapper;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import com.shop.process_order_service.repository.CustomerRepository;
+import com.shop.process_order_service.repository.OrderBatchWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Processes many orders in one transaction. Customers, shops and menus are loaded once for the
+ * whole batch, orders are admitted to their shop's queue in request order, and accepted orders
+ * are written with JDBC batch inserts. An order that fails validation or admission is reported
+ * in its own result and does not fail the rest of the batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchOrderService {
+
+    private final CustomerRepository customerRepository;
+    private final CoffeeShopRepository coffeeShopRepository;
+    private final OrderBatchWriter orderBatchWriter;
+    private final MenuCatalog menuCatalog;
+    private final QueueService queueService;
+    private final NotificationService notificationService;
+    private final OrderMapper orderMapper;
+
+    @Transactional
+    public BatchOrderResponseDto processOrders(List<OrderRequestDto> requests) {
+        log.info("Processing batch of {} orders", requests.size());
+
+        Map<Long, Customer> customers = customerRepository.findAllById(distinctIds(requests, OrderRequestDto::getCustomerId))
+                .stream()
+                .collect(Collectors.toMap(Customer::getId, Function.identity()));
+        Map<Long, CoffeeShop> shops = coffeeShopRepository.findAllById(distinctIds(requests, OrderRequestDto::getCoffeeShopId))
+                .stream()
+                .collect(Collectors.toMap(CoffeeShop::getId, Function.identity()));
+
+        queueService.lockShopQueues(shops.keySet());
+
+        Order[] orders = new Order[requests.size()];
+        BatchOrderResultDto[] results = new BatchOrderResultDto[requests.size()];
+        List<Order> accepted = new ArrayList<>();
+        Map<Long, Long> pendingWork = new HashMap<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            try {
+                orders[i] = buildOrder(requests.get(i), customers, shops, pendingWork);
+                accepted.add(orders[i]);
+            } catch (RuntimeException e) {
+                log.warn("Rejected order {} of batch: {}", i, e.getMessage());
+                results[i] = BatchOrderResultDto.builder()
+                        .index(i)
+                        .success(false)
+                        .errorCode(errorCodeFor(e))
+                        .message(e.getMessage())
+                        .build();
+            }
+        }
+
+        orderBatchWriter.insertOrders(accepted);
+        accepted.forEach(queueService::enqueueOrder);
+
+        Map<Long, Integer> loyaltyPoints = new HashMap<>();
+        for (Order order : accepted) {
+            loyaltyPoints.merge(order.getCustomer().getId(), 1, Integer::sum);
+        }
+        orderBatchWriter.incrementLoyaltyScores(loyaltyPoints);
+
+        notificationService.sendOrderConfirmations(accepted);
+
+        for (int i = 0; i < orders.length; i++) {
+            if (orders[i] != null) {
+                results[i] = BatchOrderResultDto.builder()
+                        .index(i)
+                        .success(true)
+                        .order(orderMapper.toDto(orders[i]))
+                        .build();
+            }
+        }
+
+        log.info("Batch processed: {} accepted, {} rejected", accepted.size(), requests.size() - accepted.size());
+        return BatchOrderResponseDto.builder()
+                .accepted(accepted.size())
+                .rejected(requests.size() - accepted.size())
+                .results(Arrays.asList(results))
+                .build();
+    }
+
+    /**
+     * Builds and admits one order of the batch. {@code pendingWork} holds, per shop, the preparation
+     * work in seconds of the batch's orders admitted so far; they are not queued until the batch is
+     * written, so the order's wait time counts them on top of the shop's queue.
+     */
+    private Order buildOrder(OrderRequestDto request, Map<Long, Customer> customers, Map<Long, CoffeeShop> shops,
+                             Map<Long, Long> pendingWork) {
+        Customer customer = customers.get(request.getCustomerId());
+        if (customer == null) {
+            throw new CustomerNotFoundException("Customer not found: " + request.getCustomerId());
+        }
+        CoffeeShop shop = shops.get(request.getCoffeeShopId());
+        if (shop == null) {
+            throw new ShopNotFoundException("Coffee shop not found: " + request.getCoffeeShopId());
+        }
+
+        Order order = new Order();
+        order.setCustomer(customer);
+        order.setCoffeeShop(shop);
+        order.setStatus(OrderStatus.PENDING);
+
+        Map<Long, MenuItem> menu = menuCatalog.getMenu(shop.getId());
+        List<OrderItem> orderItems = new ArrayList<>(request.getItems().size());
+        BigDecimal totalAmount = BigDecimal.ZERO;
+        for (OrderItemDto itemDto : request.getItems()) {
+            MenuItem menuItem = menu.get(itemDto.getMenuItemId());
+            if (menuItem == null) {
+                throw new RuntimeException("Menu item not found: " + itemDto.getMenuItemId());
+            }
+            if (!menuItem.getAvailable()) {
+                throw new RuntimeException("Menu item not available: " + menuItem.getName());
+            }
+            OrderItem orderItem = orderMapper.toItemEntity(itemDto);
+            orderItem.setOrder(order);
+            orderItem.setMenuItem(menuItem);
+            orderItem.setUnitPrice(menuItem.getPrice());
+            orderItem.setTotalPrice(menuItem.getPrice().multiply(BigDecimal.valueOf(itemDto.getQuantity())));
+            orderItems.add(orderItem);
+            totalAmount = totalAmount.add(orderItem.getTotalPrice());
+        }
+        order.setOrderItems(orderItems);
+        order.setTotalAmount(totalAmount);
+
+        Integer queuePosition = queueService.admitOrder(shop);
+        order.setQueuePosition(queuePosition);
+        long workAhead = pendingWork.getOrDefault(shop.getId(), 0L);
+        order.setEstimatedWaitTime(queueService.calculateEstimatedWaitTime(order, workAhead));
+        pendingWork.put(shop.getId(), workAhead + queueService.estimatePreparationSeconds(order));
+        return order;
+    }
+
+    private static Set<Long> distinctIds(List<OrderRequestDto> requests, Function<OrderRequestDto, Long> idExtractor) {
+        return requests.stream()
+                .map(idExtractor)
+                .collect(Collectors.toSet());
+    }
+
+    private static String errorCodeFor(RuntimeException e) {
+        if (e instanceof BusinessException businessException) {
+            return businessException.getErrorCode();
+        }
+        if (e instanceof QueueFullException) {
+            return "QUEUE_FULL";
+        }
+        if (e instanceof ShopNotFoundException) {
+            return "SHOP_NOT_FOUND";
+        }
+        return "INVALID_ORDER";
+    }
+}
@@ -1,27 +1,73 @@
 package com.shop.process_order_service.service;
 
+import com.shop.process_order_service.dto.CustomerPage;
 import com.shop.process_order_service.dto.CustomerResponseDto;
-import com.shop.process_order_service.entity.Customer;
+import com.shop.process_order_service.dto.CustomerSearchCriteria;
+import com.shop.process_order_service.dto.CustomerView;
+import com.shop.process_order_service.exception.InvalidCursorException;
 import com.shop.process_order_service.mapper.CustomerMapper;
-import com.shop.process_order_service.repository.CustomerRepository;
+import com.shop.process_order_service.repository.CustomerSearchRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CustomerService {
 
-    private final CustomerRepository customerRepository;
+    private final CustomerSearchRepository customerSearchRepository;
     private final CustomerMapper customerMapper;
 
-    public List<CustomerResponseDto> getAllCustomers() {
-        List<Customer> customers = customerRepository.findAll();
-        return customers.stream()
-                .map(customerMapper::toDto)
-                .collect(Collectors.toList());
+    /**
+     * Returns a page of matching customers in id order.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     */
+    @Transactional(readOnly = true)
+    public CustomerPage getCustomers(CustomerSearchCriteria criteria, String cursor, int limit) {
+        // One extra row tells whether another page follows.
+        List<CustomerView> customers = customerSearchRepository.findPage(criteria, decodeCursor(cursor), limit + 1);
+        boolean hasMore = customers.size() > limit;
+        List<CustomerView> page = hasMore ? customers.subList(0, limit) : customers;
+        return CustomerPage.builder()
+                .customers(page.stream()
+                        .map(customerMapper::toDto)
+                        .collect(Collectors.toList()))
+                .nextCursor(hasMore ? String.valueOf(page.get(page.size() - 1).id()) : null)
+                .build();
+    }
+
+    /**
+     * Passes every matching customer to {@code sink} in id order while reading them from a
+     * database cursor.
+     *
+     * @return the number of customers exported
+     */
+    @Transactional(readOnly = true)
+    public long exportCustomers(CustomerSearchCriteria criteria, Consumer<CustomerResponseDto> sink) {
+        long count = 0;
+        try (Stream<CustomerView> customers = customerSearchRepository.stream(criteria)) {
+            for (CustomerView customer : (Iterable<CustomerView>) customers::iterator) {
+                sink.accept(customerMapper.toDto(customer));
+                count++;
+            }
+        }
+        return count;
     }
-}
 
+    private static Long decodeCursor(String cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException(cursor);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.shop.process_order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs tasks after a delay without a thread waiting for each of them.
+ * <p>
+ * Time is split into ticks and tasks are hashed into a ring of buckets by the tick they are due
+ * in; a task further away than one turn of the ring carries the number of remaining turns. A
+ * single ticker thread advances one bucket per tick and hands due tasks to {@code executor}, so
+ * scheduling is O(1) and a task fires at most one tick late.
+ */
+@Slf4j
+public class HashedTimingWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final Queue<Timeout>[] buckets;
+    private final int mask;
+    private final Queue<Timeout> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Executor executor;
+    private final ScheduledExecutorService ticker;
+    private final long startNanos = System.nanoTime();
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, Duration tickDuration, int ticksPerWheel, Executor executor) {
+        int size = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.executor = executor;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void schedule(Runnable task, Duration delay) {
+        long deadlineTick = (System.nanoTime() - startNanos + delay.toNanos() + tickNanos - 1) / tickNanos;
+        incoming.add(new Timeout(task, deadlineTick));
+        pending.incrementAndGet();
+    }
+
+    /**
+     * @return the number of tasks scheduled but not yet handed to the executor
+     */
+    public int pending() {
+        return pending.get();
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    private void advance() {
+        try {
+            tick++;
+            for (Timeout timeout = incoming.poll(); timeout != null; timeout = incoming.poll()) {
+                long ticksAway = Math.max(0, timeout.deadlineTick - tick);
+                timeout.remainingRounds = ticksAway / buckets.length;
+                buckets[(int) ((tick + ticksAway) & mask)].add(timeout);
+            }
+            for (Iterator<Timeout> due = buckets[(int) (tick & mask)].iterator(); due.hasNext(); ) {
+                Timeout timeout = due.next();
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                    continue;
+                }
+                due.remove();
+                pending.decrementAndGet();
+                executor.execute(timeout.task);
+            }
+        } catch (RuntimeException e) {
+            // Keep ticking: an exception would cancel the periodic task.
+            log.error("Timing wheel tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private static final class Timeout {
+        private final Runnable task;
+        private final long deadlineTick;
+        private long remainingRounds;
+
+        private Timeout(Runnable task, long deadlineTick) {
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NotificationMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for the SMS gateway that only logs what would be sent.
+ */
+@Component
+@Slf4j
+public class LoggingNotificationChannel implements NotificationChannel {
+
+    @Override
+    public Map<Long, String> deliver(List<NotificationMessage> messages) {
+        for (NotificationMessage message : messages) {
+            log.info("Sending {} to customer: {} for order: {}: {}",
+                    message.getType(), message.getRecipient(), message.getOrderId(), message.getMessage());
+        }
+        return Map.of();
+    }
+}
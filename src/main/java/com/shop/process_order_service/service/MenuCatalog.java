@@ -0,0 +1,71 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.MenuItem;
+import com.shop.process_order_service.repository.MenuItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Holds an immutable snapshot of each coffee shop's menu, keyed by menu item id, so that
+ * order intake can price every line item without a query per item.
+ * <p>
+ * A snapshot is loaded per shop from {@link MenuItemRepository#findByCoffeeShopId(Long)} and
+ * replaced as a whole whenever one of the shop's menu items changes through JPA on this
+ * instance. Changes made elsewhere, by another instance or in SQL, are picked up once the
+ * snapshot is older than {@code app.menu.snapshot-ttl-ms}. The cached {@link MenuItem}
+ * instances are detached and shared between requests, so callers must treat them as read-only.
+ */
+@Service
+@Slf4j
+public class MenuCatalog {
+
+    private final MenuItemRepository menuItemRepository;
+    private final long ttlNanos;
+    private final ConcurrentMap<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    public MenuCatalog(MenuItemRepository menuItemRepository,
+                       @Value("${app.menu.snapshot-ttl-ms:60000}") long ttlMs) {
+        this.menuItemRepository = menuItemRepository;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    public Map<Long, MenuItem> getMenu(Long shopId) {
+        Snapshot snapshot = snapshots.get(shopId);
+        if (snapshot != null && System.nanoTime() - snapshot.loadedAt() < ttlNanos) {
+            return snapshot.items();
+        }
+        return refresh(shopId);
+    }
+
+    /**
+     * Reloads the shop's menu. The query runs outside the map, so a slow load never holds up
+     * reads of other shops.
+     */
+    public Map<Long, MenuItem> refresh(Long shopId) {
+        Map<Long, MenuItem> items = loadSnapshot(shopId);
+        snapshots.put(shopId, new Snapshot(items, System.nanoTime()));
+        log.debug("Menu snapshot loaded for shop: {}", shopId);
+        return items;
+    }
+
+    public void evict(Long shopId) {
+        snapshots.remove(shopId);
+        log.info("Menu snapshot evicted for shop: {}", shopId);
+    }
+
+    private Map<Long, MenuItem> loadSnapshot(Long shopId) {
+        return menuItemRepository.findByCoffeeShopId(shopId).stream()
+                .collect(Collectors.toUnmodifiableMap(MenuItem::getId, Function.identity()));
+    }
+
+    private record Snapshot(Map<Long, MenuItem> items, long loadedAt) {
+    }
+}
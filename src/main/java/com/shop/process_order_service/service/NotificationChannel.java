@@ -0,0 +1,20 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NotificationMessage;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Delivers notifications to customers, for example through an SMS gateway.
+ */
+public interface NotificationChannel {
+
+    /**
+     * Delivers a batch of notifications.
+     *
+     * @return the error of every notification that could not be delivered, keyed by outbox id;
+     * empty if all were delivered
+     */
+    Map<Long, String> deliver(List<NotificationMessage> messages);
+}
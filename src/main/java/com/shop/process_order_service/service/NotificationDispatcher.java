@@ -0,0 +1,267 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NotificationMessage;
+import com.shop.process_order_service.entity.NotificationType;
+import com.shop.process_order_service.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Delivers notifications from the outbox. Each poll claims up to
+ * {@code app.notification.outbox.batch-size} due rows for {@code app.notification.outbox.claim-lease-ms}
+ * in a short transaction, hands each notification type's share to the {@link NotificationChannel}
+ * on that type's {@link NotificationExecutors} pool outside any transaction, and records each
+ * share's outcome in a new short transaction. No connection or row lock is held while a channel
+ * delivers. The poll waits at most {@code app.notification.outbox.delivery-timeout-ms} for a
+ * batch's deliveries and never delivers on its own thread, so a hung channel cannot block the
+ * scheduler. Rows whose delivery the pool rejected, ran inline under its caller-runs policy or
+ * did not finish in time are released from their lease and claimed again by a later poll; a
+ * delivery that finished late may therefore be sent twice.
+ * <p>
+ * A failed notification is retried from memory: it is put on a {@link HashedTimingWheel} with a
+ * linear backoff, and when it is due it is delivered together with the other due retries on a
+ * single retry thread. No thread waits out a backoff. Its row stays PENDING but becomes
+ * claimable again only after the backoff plus {@code app.notification.outbox.retry-lease-ms},
+ * so the poller picks it up only if this instance stops before retrying. After
+ * {@code app.notification.outbox.max-attempts} the row is marked FAILED.
+ */
+@Component
+@Slf4j
+public class NotificationDispatcher {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationChannel notificationChannel;
+    private final NotificationExecutors notificationExecutors;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long retryDelayMs;
+    private final Duration retryLease;
+    private final Duration claimLease;
+    private final long deliveryTimeoutMs;
+    private final ExecutorService retryExecutor;
+    private final HashedTimingWheel retryWheel;
+    private final Queue<NotificationMessage> dueRetries = new ConcurrentLinkedQueue<>();
+
+    public NotificationDispatcher(NotificationOutboxRepository outboxRepository,
+                                  NotificationChannel notificationChannel,
+                                  NotificationExecutors notificationExecutors,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.notification.outbox.batch-size:200}") int batchSize,
+                                  @Value("${app.notification.outbox.max-attempts:5}") int maxAttempts,
+                                  @Value("${app.notification.outbox.retry-delay-ms:5000}") long retryDelayMs,
+                                  @Value("${app.notification.outbox.retry-lease-ms:60000}") long retryLeaseMs,
+                                  @Value("${app.notification.outbox.claim-lease-ms:60000}") long claimLeaseMs,
+                                  @Value("${app.notification.outbox.delivery-timeout-ms:30000}") long deliveryTimeoutMs) {
+        this.outboxRepository = outboxRepository;
+        this.notificationChannel = notificationChannel;
+        this.notificationExecutors = notificationExecutors;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryDelayMs = retryDelayMs;
+        this.retryLease = Duration.ofMillis(retryLeaseMs);
+        this.claimLease = Duration.ofMillis(claimLeaseMs);
+        this.deliveryTimeoutMs = deliveryTimeoutMs;
+        this.retryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryWheel = new HashedTimingWheel("notification-retry-wheel", Duration.ofMillis(100), 512, retryExecutor);
+
+        Gauge.builder("notification.retry.queue.depth", this, NotificationDispatcher::retryQueueDepth)
+                .description("Failed notifications waiting for their next delivery attempt")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Delivers batches until no full batch is due any more, or a delivery pool is saturated.
+     */
+    @Scheduled(fixedDelayString = "${app.notification.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        boolean more;
+        do {
+            more = dispatchBatch();
+        } while (more);
+    }
+
+    public int retryQueueDepth() {
+        return retryWheel.pending() + dueRetries.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryWheel.close();
+        retryExecutor.shutdownNow();
+    }
+
+    /**
+     * @return {@code true} if a full batch was delivered and more rows are probably due
+     */
+    private boolean dispatchBatch() {
+        List<NotificationMessage> batch = transactionTemplate.execute(status ->
+                outboxRepository.claimPending(batchSize, LocalDateTime.now().plus(claimLease)));
+        Map<NotificationType, List<NotificationMessage>> byType = new EnumMap<>(NotificationType.class);
+        for (NotificationMessage message : batch) {
+            byType.computeIfAbsent(message.getType(), type -> new ArrayList<>()).add(message);
+        }
+
+        List<DeliveryTask> tasks = new ArrayList<>(byType.size());
+        byType.forEach((type, messages) -> {
+            DeliveryTask task = new DeliveryTask(messages);
+            tasks.add(task);
+            notificationExecutors.execute(type, task);
+        });
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deliveryTimeoutMs);
+        List<NotificationMessage> deferred = new ArrayList<>();
+        for (DeliveryTask task : tasks) {
+            Map<Long, String> errors = task.await(deadline);
+            if (errors == null) {
+                deferred.addAll(task.messages);
+            } else {
+                transactionTemplate.executeWithoutResult(status -> recordOutcome(task.messages, errors));
+            }
+        }
+        outboxRepository.releaseClaims(deferred);
+        return deferred.isEmpty() && batch.size() == batchSize;
+    }
+
+    /**
+     * Runs on the retry thread each time a retry falls due and delivers every retry due by then.
+     */
+    private void deliverDueRetries() {
+        List<NotificationMessage> batch = new ArrayList<>(batchSize);
+        for (NotificationMessage message = dueRetries.poll(); message != null; message = dueRetries.poll()) {
+            batch.add(message);
+            if (batch.size() == batchSize || dueRetries.isEmpty()) {
+                Map<Long, String> errors = deliver(batch);
+                List<NotificationMessage> delivered = List.copyOf(batch);
+                transactionTemplate.executeWithoutResult(status -> recordOutcome(delivered, errors));
+                batch.clear();
+            }
+        }
+    }
+
+    private Map<Long, String> deliver(List<NotificationMessage> batch) {
+        try {
+            return notificationChannel.deliver(batch);
+        } catch (RuntimeException e) {
+            log.error("Notification channel failed for a batch of {}: {}", batch.size(), e.getMessage());
+            Map<Long, String> errors = new HashMap<>();
+            for (NotificationMessage message : batch) {
+                errors.put(message.getId(), e.getMessage());
+            }
+            return errors;
+        }
+    }
+
+    private void recordOutcome(List<NotificationMessage> batch, Map<Long, String> errors) {
+        List<NotificationMessage> sent = new ArrayList<>(batch.size());
+        for (NotificationMessage message : batch) {
+            String error = errors.get(message.getId());
+            if (error == null) {
+                sent.add(message);
+            } else {
+                retryLater(message, error);
+            }
+        }
+        outboxRepository.markSent(sent);
+        log.debug("Dispatched {} notifications, {} failed", sent.size(), batch.size() - sent.size());
+    }
+
+    private void retryLater(NotificationMessage message, String error) {
+        int attempt = message.getAttempts() + 1;
+        if (attempt >= maxAttempts) {
+            log.error("Giving up on {} for order {} after {} attempts: {}",
+                    message.getType(), message.getOrderId(), attempt, error);
+            outboxRepository.markFailed(message, null, error);
+            return;
+        }
+        Duration delay = Duration.ofMillis(retryDelayMs * attempt);
+        outboxRepository.markFailed(message, LocalDateTime.now().plus(delay).plus(retryLease), error);
+        message.setAttempts(attempt);
+        TransactionCallbacks.afterCommit(() -> retryWheel.schedule(() -> {
+            dueRetries.add(message);
+            deliverDueRetries();
+        }, delay));
+    }
+
+    /**
+     * Delivers one notification type's share of a claimed batch. Completes with {@code null} if
+     * the pool rejected it, in which case the rows are released for a later poll.
+     */
+    private final class DeliveryTask extends NotificationTask {
+
+        private final List<NotificationMessage> messages;
+        private final CompletableFuture<Map<Long, String>> result = new CompletableFuture<>();
+        private final Thread dispatcherThread = Thread.currentThread();
+
+        private DeliveryTask(List<NotificationMessage> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void run() {
+            if (Thread.currentThread() == dispatcherThread) {
+                // Caller-runs back-pressure: the outbox already holds the rows, so leave them for a later poll
+                spill();
+                return;
+            }
+            result.complete(deliver(messages));
+        }
+
+        /**
+         * @return the delivery errors, or {@code null} if the task was not run or did not finish by the deadline
+         */
+        private Map<Long, String> await(long deadlineNanos) {
+            try {
+                return result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                log.warn("Delivery of {} {} notifications did not finish within {} ms, leaving them for a later poll",
+                        messages.size(), messages.get(0).getType(), deliveryTimeoutMs);
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        @Override
+        void drop() {
+            result.complete(null);
+        }
+
+        @Override
+        void spill() {
+            result.complete(null);
+        }
+    }
+}
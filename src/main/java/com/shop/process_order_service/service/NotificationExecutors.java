@@ -0,0 +1,100 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.config.NotificationExecutorProperties;
+import com.shop.process_order_service.config.NotificationExecutorProperties.Pool;
+import com.shop.process_order_service.config.NotificationExecutorProperties.RejectionPolicy;
+import com.shop.process_order_service.entity.NotificationType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One bounded thread pool per {@link NotificationType}, so that a burst of one kind of
+ * notification cannot delay the others and queued work cannot grow without limit.
+ * <p>
+ * Each pool is named {@code notification-<type>} and reports {@code executor.active},
+ * {@code executor.queued} and the other executor metrics under that name, plus
+ * {@code notification.executor.rejected} for tasks that found the pool and its queue full.
+ */
+@Component
+@Slf4j
+public class NotificationExecutors {
+
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private final Map<NotificationType, ThreadPoolExecutor> executors = new EnumMap<>(NotificationType.class);
+
+    public NotificationExecutors(NotificationExecutorProperties properties, MeterRegistry meterRegistry) {
+        for (NotificationType type : NotificationType.values()) {
+            Pool pool = properties.poolFor(type);
+            String name = "notification-" + type.name().toLowerCase().replace('_', '-');
+            Counter rejections = Counter.builder("notification.executor.rejected")
+                    .description("Notification tasks rejected because the executor and its queue were full")
+                    .tag("name", name)
+                    .tag("policy", pool.getRejectionPolicy().name())
+                    .register(meterRegistry);
+
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    pool.getCoreSize(),
+                    Math.max(pool.getCoreSize(), pool.getMaxSize()),
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(pool.getQueueCapacity()),
+                    new CustomizableThreadFactory(name + "-"),
+                    new Rejection(pool.getRejectionPolicy(), rejections));
+            new ExecutorServiceMetrics(executor, name, List.of()).bindTo(meterRegistry);
+            executors.put(type, executor);
+        }
+    }
+
+    void execute(NotificationType type, NotificationTask task) {
+        executors.get(type).execute(task);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+        for (ThreadPoolExecutor executor : executors.values()) {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Notification executor did not finish within 10 seconds, {} tasks left", executor.getQueue().size());
+            }
+        }
+    }
+
+    private record Rejection(RejectionPolicy policy, Counter rejections) implements RejectedExecutionHandler {
+
+        @Override
+        public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+            rejections.increment();
+            NotificationTask task = (NotificationTask) runnable;
+            if (executor.isShutdown()) {
+                task.spill();
+                return;
+            }
+            switch (policy) {
+                case CALLER_RUNS -> task.run();
+                case DROP_OLDEST -> {
+                    Runnable oldest = executor.getQueue().poll();
+                    if (oldest != null) {
+                        ((NotificationTask) oldest).drop();
+                    }
+                    if (!executor.getQueue().offer(task)) {
+                        task.drop();
+                    }
+                }
+                case SPILL_TO_DATABASE -> task.spill();
+            }
+        }
+    }
+}
@@ -1,58 +1,146 @@
 package com.shop.process_order_service.service;
 
+import com.shop.process_order_service.dto.NotificationMessage;
+import com.shop.process_order_service.entity.Customer;
+import com.shop.process_order_service.entity.NotificationType;
 import com.shop.process_order_service.entity.Order;
-import com.shop.process_order_service.exception.NotificationException;
+import com.shop.process_order_service.repository.CustomerRepository;
+import com.shop.process_order_service.repository.NotificationOutboxRepository;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Order confirmations and cancellations are written to the notification outbox in the caller's
+ * transaction, so they are sent only if the order change commits and survive a restart.
+ * {@link NotificationDispatcher} delivers them afterwards.
+ * <p>
+ * Queue updates are only worth sending while they are current, so they go straight to the
+ * channel on the queue-update pool of {@link NotificationExecutors} and reach the outbox only if
+ * that pool spills them.
+ */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
-    @Async
-    @Retryable(value = NotificationException.class, maxAttempts = 3, backoff = @Backoff(delay = 1000))
+    private final NotificationOutboxRepository outboxRepository;
+    private final CustomerRepository customerRepository;
+    private final NotificationChannel notificationChannel;
+    private final NotificationExecutors notificationExecutors;
+
+    @Transactional(propagation = Propagation.MANDATORY)
     public void sendOrderConfirmation(Order order) {
-        try {
+        sendOrderConfirmations(List.of(order));
+    }
 
-            log.info("Sending order confirmation to customer: {} for order: {}",
-                    order.getCustomer().getMobileNumber(), order.getId());
-            log.info("Order confirmation sent successfully for order: {}", order.getId());
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendOrderConfirmations(List<Order> orders) {
+        outboxRepository.saveAll(orders.stream()
+                .map(NotificationService::confirmationFor)
+                .toList());
+        log.info("Queued order confirmation for {} orders", orders.size());
+    }
 
-        } catch (Exception e) {
-            log.error("Failed to send notification for order: {}. Error: {}", order.getId(), e.getMessage());
-            if (!(e instanceof NotificationException)) {
-                throw new NotificationException("Failed to send order confirmation due to an unexpected error: " + e.getMessage(), e);
-            }
-            throw e;
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void sendOrderCancellation(String mobileNumber, Long orderId) {
+        outboxRepository.saveAll(List.of(NotificationMessage.builder()
+                .type(NotificationType.ORDER_CANCELLATION)
+                .orderId(orderId)
+                .recipient(mobileNumber)
+                .message("Your order " + orderId + " has been cancelled.")
+                .build()));
+        log.info("Queued order cancellation notification for order: {}", orderId);
+    }
+
+    public void sendQueueUpdateNotification(Order order) {
+        // Build the message on the caller's thread so the queued task does not hold on to the order.
+        notificationExecutors.execute(NotificationType.QUEUE_UPDATE, new QueueUpdateTask(List.of(
+                queueUpdateFor(order.getId(), order.getCustomer().getMobileNumber(),
+                        order.getQueuePosition(), order.getEstimatedWaitTime()))));
+    }
+
+    /**
+     * Sends the new positions of several orders of one shop as a single delivery.
+     */
+    public void sendQueueUpdateNotifications(List<ShopQueueEngine.QueueEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
         }
+        Set<Long> customerIds = entries.stream()
+                .map(ShopQueueEngine.QueueEntry::customerId)
+                .collect(Collectors.toSet());
+        Map<Long, String> mobileNumbers = customerRepository.findAllById(customerIds).stream()
+                .collect(Collectors.toMap(Customer::getId, Customer::getMobileNumber));
+
+        List<NotificationMessage> messages = entries.stream()
+                .filter(entry -> mobileNumbers.containsKey(entry.customerId()))
+                .map(entry -> queueUpdateFor(entry.orderId(), mobileNumbers.get(entry.customerId()),
+                        entry.position(), entry.estimatedWaitTime()))
+                .toList();
+        notificationExecutors.execute(NotificationType.QUEUE_UPDATE, new QueueUpdateTask(messages));
     }
 
-@Async
-public void sendOrderCancellation(String mobileNumber, Long orderId) {
-    log.info("Sending order cancellation notification to customer: {} for order: {}", mobileNumber, orderId);
-    try {
-        Thread.sleep(1000);
-        log.info("Order cancellation notification sent successfully for order: {}", orderId);
-    } catch (InterruptedException e) {
-        log.error("Error sending cancellation notification for order {}: {}", orderId, e.getMessage());
-        Thread.currentThread().interrupt();
-    } catch (Exception e) {
-        log.error("Unexpected error sending cancellation notification for order {}: {}", orderId, e.getMessage());
+    private static NotificationMessage confirmationFor(Order order) {
+        return NotificationMessage.builder()
+                .type(NotificationType.ORDER_CONFIRMATION)
+                .orderId(order.getId())
+                .recipient(order.getCustomer().getMobileNumber())
+                .message("Your order " + order.getId() + " at " + order.getCoffeeShop().getName() +
+                        " is confirmed. Queue position: " + order.getQueuePosition() +
+                        ", estimated wait: " + order.getEstimatedWaitTime() + " mins.")
+                .build();
     }
-}
 
+    private static NotificationMessage queueUpdateFor(Long orderId, String recipient, Integer position,
+                                                      Integer estimatedWaitTime) {
+        return NotificationMessage.builder()
+                .type(NotificationType.QUEUE_UPDATE)
+                .orderId(orderId)
+                .recipient(recipient)
+                .message("Your order " + orderId + " is now at position " + position +
+                        ", estimated wait: " + estimatedWaitTime + " mins.")
+                .build();
+    }
 
+    private final class QueueUpdateTask extends NotificationTask {
 
-    @Async
-    public void sendQueueUpdateNotification(Order order) {
-        log.info("Sending queue update notification to customer: {} for order: {}. New position: {}, Estimated wait: {} mins",
-                order.getCustomer().getMobileNumber(), 
-                order.getId(),
-                order.getQueuePosition(),
-                order.getEstimatedWaitTime());
-        log.info("Queue update notification sent successfully for order: {}", order.getId());
+        private final List<NotificationMessage> messages;
+
+        private QueueUpdateTask(List<NotificationMessage> messages) {
+            this.messages = messages;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // The messages have no outbox ids yet, so errors cannot be told apart; a stale
+                // queue update is not worth retrying anyway.
+                Map<Long, String> errors = notificationChannel.deliver(messages);
+                if (!errors.isEmpty()) {
+                    log.warn("Queue update notifications failed for a batch of {}: {}",
+                            messages.size(), errors.values().iterator().next());
+                }
+            } catch (RuntimeException e) {
+                log.warn("Queue update notifications failed for a batch of {}: {}", messages.size(), e.getMessage());
+            }
+        }
+
+        @Override
+        void drop() {
+            log.debug("Dropped {} stale queue update notifications", messages.size());
+        }
+
+        @Override
+        void spill() {
+            outboxRepository.saveAll(messages);
+        }
     }
 }
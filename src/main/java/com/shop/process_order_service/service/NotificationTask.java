@@ -0,0 +1,20 @@
+package com.shop.process_order_service.service;
+
+/**
+ * Delivery work submitted to {@link NotificationExecutors}. When the executor of its type is
+ * saturated the task is not run but dropped or spilled, depending on the executor's
+ * rejection policy.
+ */
+abstract class NotificationTask implements Runnable {
+
+    /**
+     * Called instead of {@link #run()} when the task is discarded to make room for newer work.
+     */
+    abstract void drop();
+
+    /**
+     * Called instead of {@link #run()} when the task has to be left for a later dispatch from
+     * the outbox.
+     */
+    abstract void spill();
+}
@@ -0,0 +1,56 @@
+package com.shop.process_order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs {@link RetryOnOptimisticLock} methods again after an {@link OptimisticLockingFailureException},
+ * up to {@code app.persistence.optimistic-retry.max-attempts} times. The aspect is ordered before
+ * the transaction interceptor, so every attempt gets a fresh transaction and reads the winning
+ * write. A call that joins an outer transaction is not retried, because that transaction is
+ * already marked for rollback; the conflict is left to whoever started it.
+ */
+@Aspect
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+@Slf4j
+public class OptimisticLockRetryAspect {
+
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public OptimisticLockRetryAspect(@Value("${app.persistence.optimistic-retry.max-attempts:3}") int maxAttempts,
+                                     @Value("${app.persistence.optimistic-retry.backoff-ms:25}") long backoffMs) {
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    @Around("@annotation(com.shop.process_order_service.service.RetryOnOptimisticLock)")
+    public Object retry(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return joinPoint.proceed();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return joinPoint.proceed();
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("{} lost {} optimistic locking races, giving up",
+                            joinPoint.getSignature().toShortString(), attempt);
+                    throw e;
+                }
+                log.info("{} lost an optimistic locking race, attempt {} of {}",
+                        joinPoint.getSignature().toShortString(), attempt + 1, maxAttempts);
+                Thread.sleep(backoffMs * attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.shop.process_order_service.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.repository.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Strong ETags for order and queue-status reads that can be checked before the response is built.
+ * <p>
+ * An order's tag is its {@code version}. A response body is tagged with the version read in the
+ * same query as the body, so a body read from a lagging replica never carries a newer tag. To
+ * answer 304 without loading the order, the latest known versions are kept in a bounded
+ * in-memory map, loaded from the primary with a lookup of the version column only and updated
+ * when this instance commits a change to the order. A client's tag always comes from a body, so
+ * it matches the latest version only if that body was current. Entries expire after
+ * {@code app.etag.version-ttl-ms}, which bounds how long a change committed by another instance
+ * can go unnoticed.
+ * <p>
+ * A queue-status tag is the {@link ShopQueueEngine} epoch of the order's shop queue plus the
+ * order's estimated wait time, which also falls between epochs while orders are being prepared.
+ * Epochs restart with every boot and differ between instances, so the tag also carries a random
+ * id drawn when this instance starts. It exists only while the order is queued on this instance;
+ * other queue-status answers are not tagged.
+ * <p>
+ * Callers must take a queue-status tag before building the response, so that a concurrent change
+ * can only make the tag older than the payload and never newer.
+ */
+@Component
+public class OrderETags {
+
+    private final OrderRepository orderRepository;
+    private final ShopQueueEngine shopQueueEngine;
+    private final Cache<Long, Long> versions;
+    private final String instanceId = Long.toString(ThreadLocalRandom.current().nextLong() & Long.MAX_VALUE, 36);
+
+    public OrderETags(OrderRepository orderRepository,
+                      ShopQueueEngine shopQueueEngine,
+                      @Value("${app.etag.max-versions:100000}") long maxVersions,
+                      @Value("${app.etag.version-ttl-ms:10000}") long versionTtlMs) {
+        this.orderRepository = orderRepository;
+        this.shopQueueEngine = shopQueueEngine;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxVersions)
+                .expireAfterWrite(Duration.ofMillis(versionTtlMs))
+                .build();
+    }
+
+    /**
+     * @return the tag of an order body read at the given version
+     */
+    public String forOrder(Long orderId, Long version) {
+        return "\"o" + orderId + "-" + version + "\"";
+    }
+
+    /**
+     * @return the order's latest tag if {@code ifNoneMatch} lists it, or empty if the order has to
+     * be loaded
+     */
+    public Optional<String> unchangedOrder(Long orderId, String ifNoneMatch) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return Optional.empty();
+        }
+        Long version = versions.get(orderId, id -> orderRepository.findVersionById(id).orElse(null));
+        if (version == null) {
+            return Optional.empty();
+        }
+        String current = forOrder(orderId, version);
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(current)) {
+                return Optional.of(current);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return the tag of the order's queue status, or empty if it is not answered from memory
+     */
+    public Optional<String> forQueueStatus(Long orderId, Long customerId) {
+        return shopQueueEngine.queueEpoch(orderId, customerId)
+                .flatMap(epoch -> shopQueueEngine.find(orderId)
+                        .map(entry -> "\"q" + orderId + "-" + instanceId + "-" + epoch + "-"
+                                + entry.estimatedWaitTime() + "\""));
+    }
+
+    /**
+     * Records the order's new version once the surrounding transaction commits. Must be called
+     * for every change to an order made through JPA.
+     */
+    public void orderChanged(Order order) {
+        TransactionCallbacks.afterCommit(() -> versions.put(order.getId(), order.getVersion()));
+    }
+}
@@ -0,0 +1,159 @@
+package com.shop.process_order_service.service;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Order-statistic treap over queue tickets. Each node tracks the size and total weight of its
+ * subtree, so the rank of a ticket (its 1-based position in ascending order) and the weight of
+ * the tickets before it are found in O(log n) expected time, as are inserts and removals.
+ * Not thread-safe.
+ */
+final class OrderRankTree {
+
+    private static final class Node {
+        private final long key;
+        private final int weight;
+        private final int priority;
+        private int size = 1;
+        private long totalWeight;
+        private Node left;
+        private Node right;
+
+        private Node(long key, int weight) {
+            this.key = key;
+            this.weight = weight;
+            this.totalWeight = weight;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private Node root;
+
+    int size() {
+        return size(root);
+    }
+
+    long totalWeight() {
+        return totalWeight(root);
+    }
+
+    /**
+     * @return the largest ticket, or {@code -1} if the tree is empty
+     */
+    long lastKey() {
+        Node node = root;
+        if (node == null) {
+            return -1;
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    /**
+     * Inserts a ticket that is not yet in the tree.
+     */
+    void insert(long key, int weight) {
+        Node[] parts = split(root, key);
+        root = merge(merge(parts[0], new Node(key, weight)), parts[1]);
+    }
+
+    /**
+     * @return {@code true} if the ticket was present
+     */
+    boolean remove(long key) {
+        Node[] lower = split(root, key);
+        Node[] upper = split(lower[1], key + 1);
+        root = merge(lower[0], upper[1]);
+        return upper[0] != null;
+    }
+
+    /**
+     * @return the 1-based rank of the ticket, or {@code 0} if it is not in the tree
+     */
+    int rank(long key) {
+        int smaller = 0;
+        Node node = root;
+        while (node != null) {
+            if (key < node.key) {
+                node = node.left;
+            } else if (key > node.key) {
+                smaller += size(node.left) + 1;
+                node = node.right;
+            } else {
+                return smaller + size(node.left) + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the total weight of all tickets smaller than the given one
+     */
+    long weightBefore(long key) {
+        long weight = 0;
+        Node node = root;
+        while (node != null) {
+            if (key <= node.key) {
+                node = node.left;
+            } else {
+                weight += totalWeight(node.left) + node.weight;
+                node = node.right;
+            }
+        }
+        return weight;
+    }
+
+    /**
+     * Splits into keys {@code < key} and keys {@code >= key}.
+     */
+    private static Node[] split(Node node, long key) {
+        if (node == null) {
+            return new Node[]{null, null};
+        }
+        if (node.key < key) {
+            Node[] parts = split(node.right, key);
+            node.right = parts[0];
+            update(node);
+            return new Node[]{node, parts[1]};
+        }
+        Node[] parts = split(node.left, key);
+        node.left = parts[1];
+        update(node);
+        return new Node[]{parts[0], node};
+    }
+
+    /**
+     * Merges two trees where every key in {@code left} is smaller than every key in {@code right}.
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+
+    private static void update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        node.totalWeight = totalWeight(node.left) + totalWeight(node.right) + node.weight;
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static long totalWeight(Node node) {
+        return node == null ? 0 : node.totalWeight;
+    }
+}
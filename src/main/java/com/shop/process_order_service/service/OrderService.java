@@ -7,18 +7,26 @@ import com.shop.process_order_service.exception.*;
 import com.shop.process_order_service.mapper.OrderMapper; // Import OrderMapper
 import com.shop.process_order_service.repository.CoffeeShopRepository;
 import com.shop.process_order_service.repository.CustomerRepository;
-import com.shop.process_order_service.repository.MenuItemRepository;
 import com.shop.process_order_service.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -28,10 +36,11 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final CustomerRepository customerRepository;
     private final CoffeeShopRepository coffeeShopRepository;
-    private final MenuItemRepository menuItemRepository;
+    private final MenuCatalog menuCatalog;
     private final QueueService queueService;
     private final NotificationService notificationService;
     private final OrderMapper orderMapper;
+    private final OrderETags orderETags;
 
     @Transactional
     public OrderResponseDto processOrder(OrderRequestDto request) {
@@ -44,10 +53,7 @@ public class OrderService {
         CoffeeShop shop = coffeeShopRepository.findById(request.getCoffeeShopId())
                 .orElseThrow(() -> new ShopNotFoundException("Coffee shop not found: " + request.getCoffeeShopId()));
 
-        Integer currentQueueSize = orderRepository.countActiveOrdersByShop(shop.getId());
-        if (currentQueueSize >= shop.getMaxQueueSize()) {
-            throw new QueueFullException("Queue is full for shop: " + shop.getName() + ". Please try again later.");
-        }
+        Integer queuePosition = queueService.admitOrder(shop);
 
         Order order = new Order();
         order.setCustomer(customer);
@@ -56,10 +62,14 @@ public class OrderService {
 
         BigDecimal totalAmount = BigDecimal.ZERO;
 
+        Map<Long, MenuItem> menu = menuCatalog.getMenu(shop.getId());
+
         List<OrderItem> orderItems = request.getItems().stream()
                 .map(itemDto -> {
-                    MenuItem menuItem = menuItemRepository.findById(itemDto.getMenuItemId())
-                            .orElseThrow(() -> new RuntimeException("Menu item not found: " + itemDto.getMenuItemId()));
+                    MenuItem menuItem = menu.get(itemDto.getMenuItemId());
+                    if (menuItem == null) {
+                        throw new RuntimeException("Menu item not found: " + itemDto.getMenuItemId());
+                    }
                     if (!menuItem.getAvailable()) {
                         throw new RuntimeException("Menu item not available: " + menuItem.getName());
                     }
@@ -79,11 +89,11 @@ public class OrderService {
         }
         order.setTotalAmount(totalAmount);
 
-        Integer queuePosition = queueService.assignQueuePosition(shop.getId());
         order.setQueuePosition(queuePosition);
-        order.setEstimatedWaitTime(queueService.calculateEstimatedWaitTime(shop.getId(), queuePosition));
+        order.setEstimatedWaitTime(queueService.calculateEstimatedWaitTime(order));
 
         Order savedOrder = orderRepository.save(order);
+        queueService.enqueueOrder(savedOrder);
 
         customer.setLoyaltyScore(customer.getLoyaltyScore() + 1);
         customerRepository.save(customer);
@@ -97,63 +107,129 @@ public class OrderService {
     @Transactional(readOnly = true)
     public OrderResponseDto getOrder(Long orderId) {
         log.info("Fetching order with id: {}", orderId);
-        Order order = orderRepository.findByIdWithOrderItems(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found with ID: " + orderId));
+        List<OrderRow> rows = orderRepository.findOrderRows(List.of(orderId));
+        if (rows.isEmpty()) {
+            throw new OrderNotFoundException("Order not found with ID: " + orderId);
+        }
+        OrderResponseDto order = OrderRow.toResponses(rows).get(0);
         log.info("Order found: {}", order);
-        return orderMapper.toDto(order);
+        return order;
+    }
+
+    /**
+     * Returns a page of the customer's orders, newest first, in two queries: one for the keys of
+     * the page and one for those orders joined with their items. Both select straight into
+     * records, so no entity is loaded.
+     *
+     * @param cursor the {@code nextCursor} of the previous page, or {@code null} for the first page
+     */
+    @Transactional(readOnly = true)
+    public OrderHistoryPage getCustomerOrders(Long customerId, String cursor, int limit) {
+        // One extra key tells whether another page follows.
+        Limit pageLimit = Limit.of(limit + 1);
+        List<OrderHistoryCursor> keys;
+        if (cursor == null) {
+            keys = orderRepository.findCustomerHistoryKeys(customerId, pageLimit);
+            if (keys.isEmpty()) {
+                throw new CustomerNotFoundException("No orders found for customer with ID: " + customerId);
+            }
+        } else {
+            OrderHistoryCursor after = OrderHistoryCursor.decode(cursor);
+            keys = orderRepository.findCustomerHistoryKeysAfter(customerId, after.createdAt(), after.orderId(), pageLimit);
+        }
+
+        boolean hasMore = keys.size() > limit;
+        List<OrderHistoryCursor> page = hasMore ? keys.subList(0, limit) : keys;
+        List<OrderResponseDto> orders = page.isEmpty()
+                ? List.of()
+                : OrderRow.toResponses(orderRepository.findOrderRows(page.stream()
+                        .map(OrderHistoryCursor::orderId)
+                        .toList()));
+        return OrderHistoryPage.builder()
+                .orders(orders)
+                .nextCursor(hasMore ? page.get(page.size() - 1).encode() : null)
+                .build();
     }
 
+
+    /**
+     * @throws CustomerNotFoundException if the customer has no orders
+     */
     @Transactional(readOnly = true)
-    public List<OrderResponseDto> getCustomerOrders(Long customerId) {
-        List<Order> orders = orderRepository.findOrdersWithCustomerByCustomerId(customerId);
-        if (orders.isEmpty()) {
+    public void checkCustomerHasOrders(Long customerId) {
+        if (!orderRepository.existsByCustomerId(customerId)) {
             throw new CustomerNotFoundException("No orders found for customer with ID: " + customerId);
         }
-        return orders.stream()
-                .map(orderMapper::toDto)
-                .collect(Collectors.toList());
     }
 
+    /**
+     * Passes every order of the customer to {@code sink}, newest first, while reading them from a
+     * database cursor. Only the order being assembled is held in memory.
+     *
+     * @return the number of orders exported
+     */
+    @Transactional(readOnly = true)
+    public long exportCustomerOrders(Long customerId, Consumer<OrderResponseDto> sink) {
+        try (Stream<OrderRow> rows = orderRepository.streamCustomerHistoryRows(customerId)) {
+            return OrderRow.forEachResponse(rows, sink);
+        }
+    }
 
     public QueuePositionDto getQueuePosition(Long orderId, Long customerId) {
+        Optional<QueuePositionDto> queued = queueService.findQueuePosition(orderId, customerId);
+        if (queued.isPresent()) {
+            return queued.get();
+        }
+
         Order order = orderRepository.findByIdAndCustomerId(orderId, customerId)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found"));
 
-        if (order.getStatus() == OrderStatus.COMPLETED ||
-                order.getStatus() == OrderStatus.CANCELLED) {
-            return QueuePositionDto.builder()
-                    .orderId(orderId)
-                    .currentPosition(0)
-                    .totalInQueue(0)
-                    .estimatedWaitTime(0)
-                    .status(order.getStatus().toString())
-                    .build();
+        if (order.getStatus().isActive()) {
+            // The stored queue_position is the admission-time place, so rank the order in a
+            // freshly loaded queue instead.
+            queued = queueService.reloadQueuePosition(order.getCoffeeShop().getId(), orderId, customerId);
+            if (queued.isPresent()) {
+                return queued.get();
+            }
+            order = orderRepository.findByIdAndCustomerId(orderId, customerId)
+                    .orElseThrow(() -> new OrderNotFoundException("Order not found"));
         }
 
-        Integer totalInQueue = orderRepository.countActiveOrdersByShop(order.getCoffeeShop().getId());
-
         return QueuePositionDto.builder()
                 .orderId(orderId)
-                .currentPosition(order.getQueuePosition())
-                .totalInQueue(totalInQueue)
-                .estimatedWaitTime(order.getEstimatedWaitTime())
+                .currentPosition(0)
+                .totalInQueue(0)
+                .estimatedWaitTime(0)
                 .status(order.getStatus().toString())
                 .build();
     }
 
+    /**
+     * Cancels the order. Cancelling an order that is already cancelled changes nothing, so a
+     * repeated request, or a retry after a concurrent update, is harmless.
+     */
     @Transactional
+    @RetryOnOptimisticLock
     public void cancelOrder(Long orderId, Long customerId) {
         Order order = orderRepository.findByIdAndCustomerId(orderId, customerId)
                 .orElseThrow(() -> new OrderNotFoundException("Order not found"));
 
+        if (order.getStatus() == OrderStatus.CANCELLED) {
+            log.info("Order already cancelled: {}", orderId);
+            return;
+        }
         if (order.getStatus() == OrderStatus.COMPLETED) {
             throw new RuntimeException("Cannot cancel completed order");
         }
 
+        boolean wasActive = order.getStatus().isActive();
         order.setStatus(OrderStatus.CANCELLED);
         orderRepository.save(order);
+        orderETags.orderChanged(order);
 
-        queueService.reorderQueue(order.getCoffeeShop().getId());
+        if (wasActive) {
+            queueService.removeFromQueue(order);
+        }
 
         String mobileNumber = order.getCustomer().getMobileNumber();
 
@@ -163,7 +239,12 @@ public class OrderService {
     }
 
 
+    /**
+     * Moves the order to the requested status. Requesting the status the order already has
+     * changes nothing, so a repeated request, or a retry after a concurrent update, is harmless.
+     */
     @Transactional
+    @RetryOnOptimisticLock
     public void updateOrderStatuses(Long shopId, OrderStatusUpdateDto update) {
         log.info("Updating order status for shop: {}, update: {}", shopId, update);
 
@@ -179,21 +260,130 @@ public class OrderService {
         OrderStatus currentStatus = orderToUpdate.getStatus();
         OrderStatus newStatus = update.getNewStatus();
 
+        if (currentStatus == newStatus) {
+            log.info("Order {} in shop {} is already {}", orderToUpdate.getId(), shopId, newStatus);
+            return;
+        }
         if (!isValidStatusTransition(currentStatus, newStatus)) {
             throw new InvalidOrderStateException("Invalid status transition from " + currentStatus + " to " + newStatus);
         }
 
+        LocalDateTime now = LocalDateTime.now();
+        if (newStatus == OrderStatus.PROCESSING) {
+            orderToUpdate.setProcessingStartedAt(now);
+        } else if (currentStatus == OrderStatus.PROCESSING && newStatus == OrderStatus.COMPLETED
+                && orderToUpdate.getProcessingStartedAt() != null) {
+            queueService.recordPreparationTime(orderToUpdate,
+                    Duration.between(orderToUpdate.getProcessingStartedAt(), now));
+        }
         orderToUpdate.setStatus(newStatus);
 
-        if (newStatus == OrderStatus.COMPLETED) {
-            queueService.reorderQueue(shopId);
+        if (newStatus.isActive()) {
+            queueService.updateQueuedStatus(orderToUpdate);
+        } else {
+            queueService.removeFromQueue(orderToUpdate);
         }
 
         orderRepository.save(orderToUpdate);
+        orderETags.orderChanged(orderToUpdate);
         log.info("Updated order status for order: {} in shop: {} from {} to {}",
                 orderToUpdate.getId(), shopId, currentStatus, newStatus);
     }
 
+    /**
+     * Applies many status updates to one shop's orders in one transaction, in request order.
+     * The orders are loaded with one query and each update is validated against the transition
+     * table and reported in its own result. The changed orders are written as JDBC batch updates
+     * when the transaction flushes, and the shop's queue is updated once for all of them.
+     * Requesting the status an order already has changes nothing.
+     */
+    @Transactional
+    @RetryOnOptimisticLock
+    public BulkOrderStatusUpdateResponseDto updateOrderStatusesBulk(Long shopId, List<OrderStatusUpdateDto> updates) {
+        log.info("Applying {} order status updates for shop: {}", updates.size(), shopId);
+
+        coffeeShopRepository.findById(shopId)
+                .orElseThrow(() -> new ShopNotFoundException("Coffee shop not found: " + shopId));
+
+        Set<Long> orderIds = updates.stream()
+                .map(OrderStatusUpdateDto::getOrderId)
+                .collect(Collectors.toSet());
+        Map<Long, Order> orders = orderRepository.findByCoffeeShopIdAndIdIn(shopId, orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        // Orders changed by this request, in the order they were first changed.
+        Set<Long> changedOrderIds = new LinkedHashSet<>();
+        List<OrderStatusUpdateResultDto> results = new ArrayList<>(updates.size());
+        LocalDateTime now = LocalDateTime.now();
+
+        for (int i = 0; i < updates.size(); i++) {
+            OrderStatusUpdateDto update = updates.get(i);
+            Order order = orders.get(update.getOrderId());
+            if (order == null) {
+                results.add(rejectedUpdate(i, update, "ORDER_NOT_FOUND",
+                        "No order found for shop: " + shopId + " and order ID: " + update.getOrderId()));
+                continue;
+            }
+
+            OrderStatus currentStatus = order.getStatus();
+            OrderStatus newStatus = update.getNewStatus();
+            if (currentStatus != newStatus) {
+                if (!isValidStatusTransition(currentStatus, newStatus)) {
+                    results.add(rejectedUpdate(i, update, "INVALID_ORDER_STATE",
+                            "Invalid status transition from " + currentStatus + " to " + newStatus));
+                    continue;
+                }
+                if (newStatus == OrderStatus.PROCESSING) {
+                    order.setProcessingStartedAt(now);
+                } else if (currentStatus == OrderStatus.PROCESSING && newStatus == OrderStatus.COMPLETED
+                        && order.getProcessingStartedAt() != null && !changedOrderIds.contains(order.getId())) {
+                    queueService.recordPreparationTime(order, Duration.between(order.getProcessingStartedAt(), now));
+                }
+                order.setStatus(newStatus);
+                changedOrderIds.add(order.getId());
+            }
+            results.add(OrderStatusUpdateResultDto.builder()
+                    .index(i)
+                    .orderId(order.getId())
+                    .success(true)
+                    .previousStatus(currentStatus)
+                    .newStatus(newStatus)
+                    .build());
+        }
+
+        if (!changedOrderIds.isEmpty()) {
+            List<Order> left = new ArrayList<>();
+            List<Order> stillQueued = new ArrayList<>();
+            for (Long orderId : changedOrderIds) {
+                Order order = orders.get(orderId);
+                (order.getStatus().isActive() ? stillQueued : left).add(order);
+                orderETags.orderChanged(order);
+            }
+            queueService.applyStatusChanges(shopId, left, stillQueued);
+        }
+
+        int applied = (int) results.stream().filter(OrderStatusUpdateResultDto::isSuccess).count();
+        log.info("Order status updates for shop {}: {} applied, {} rejected, {} orders changed",
+                shopId, applied, updates.size() - applied, changedOrderIds.size());
+        return BulkOrderStatusUpdateResponseDto.builder()
+                .applied(applied)
+                .rejected(updates.size() - applied)
+                .results(results)
+                .build();
+    }
+
+    private static OrderStatusUpdateResultDto rejectedUpdate(int index, OrderStatusUpdateDto update,
+                                                             String errorCode, String message) {
+        return OrderStatusUpdateResultDto.builder()
+                .index(index)
+                .orderId(update.getOrderId())
+                .success(false)
+                .newStatus(update.getNewStatus())
+                .errorCode(errorCode)
+                .message(message)
+                .build();
+    }
+
     private boolean isValidStatusTransition(OrderStatus currentStatus, OrderStatus newStatus) {
         return switch (currentStatus) {
             case PENDING ->
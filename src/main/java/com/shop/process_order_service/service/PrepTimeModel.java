@@ -0,0 +1,139 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.OrderItem;
+import com.shop.process_order_service.repository.PrepTimeEstimateStore;
+import com.shop.process_order_service.repository.PrepTimeEstimateStore.PrepTimeEstimate;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Learns how long each menu item takes to prepare from completed orders.
+ * <p>
+ * Every menu item has an exponentially weighted moving average of its preparation time per
+ * unit. When an order goes from PROCESSING to COMPLETED, the observed time is split over its
+ * items in proportion to their current estimates and folded into each item's average. Updates
+ * and estimates only touch memory; changed averages are written to the database periodically
+ * and read back at startup.
+ */
+@Component
+@Slf4j
+public class PrepTimeModel {
+
+    private final PrepTimeEstimateStore store;
+    private final double smoothing;
+    private final int defaultSeconds;
+    private final ConcurrentMap<Long, PrepTimeEstimate> estimates = new ConcurrentHashMap<>();
+    private final Set<Long> changed = ConcurrentHashMap.newKeySet();
+
+    public PrepTimeModel(PrepTimeEstimateStore store,
+                         @Value("${app.queue.prep-time.smoothing:0.2}") double smoothing,
+                         @Value("${app.queue.prep-time.default-seconds:300}") int defaultSeconds) {
+        this.store = store;
+        this.smoothing = smoothing;
+        this.defaultSeconds = defaultSeconds;
+    }
+
+    /**
+     * Quantity ordered per menu item.
+     */
+    public static Map<Long, Integer> quantitiesOf(List<OrderItem> orderItems) {
+        if (orderItems == null || orderItems.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            quantities.merge(item.getMenuItem().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Loads learned averages before the queue engine rebuilds its queues.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void load() {
+        store.findAll().forEach(estimate -> estimates.put(estimate.menuItemId(), estimate));
+        log.info("Loaded preparation time estimates for {} menu items", estimates.size());
+    }
+
+    /**
+     * @return the expected preparation time in seconds of the given items
+     */
+    public int estimateSeconds(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return defaultSeconds;
+        }
+        double seconds = 0;
+        for (Map.Entry<Long, Integer> item : quantities.entrySet()) {
+            seconds += item.getValue() * averageSeconds(item.getKey());
+        }
+        return (int) Math.ceil(seconds);
+    }
+
+    /**
+     * Folds one observed preparation into the averages of the items it contained.
+     */
+    public void record(Map<Long, Integer> quantities, long observedSeconds) {
+        if (quantities.isEmpty() || observedSeconds <= 0) {
+            return;
+        }
+        double expected = 0;
+        for (Map.Entry<Long, Integer> item : quantities.entrySet()) {
+            expected += item.getValue() * averageSeconds(item.getKey());
+        }
+        double scale = observedSeconds / expected;
+        for (Long menuItemId : quantities.keySet()) {
+            estimates.compute(menuItemId, (id, current) -> {
+                double average = current == null ? defaultSeconds : current.averageSeconds();
+                long samples = current == null ? 0 : current.sampleCount();
+                double observedPerUnit = average * scale;
+                return new PrepTimeEstimate(id, average + smoothing * (observedPerUnit - average), samples + 1);
+            });
+            changed.add(menuItemId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.queue.prep-time.flush-interval-ms:60000}")
+    @PreDestroy
+    public void flush() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        List<PrepTimeEstimate> toWrite = new ArrayList<>();
+        for (Iterator<Long> ids = changed.iterator(); ids.hasNext(); ) {
+            Long menuItemId = ids.next();
+            ids.remove();
+            toWrite.add(estimates.get(menuItemId));
+        }
+        try {
+            store.saveAll(toWrite);
+            log.debug("Persisted preparation time estimates for {} menu items", toWrite.size());
+        } catch (RuntimeException e) {
+            toWrite.forEach(estimate -> changed.add(estimate.menuItemId()));
+            log.warn("Failed to persist preparation time estimates, will retry: {}", e.getMessage());
+        }
+    }
+
+    private double averageSeconds(Long menuItemId) {
+        PrepTimeEstimate estimate = estimates.get(menuItemId);
+        return estimate == null ? defaultSeconds : estimate.averageSeconds();
+    }
+}
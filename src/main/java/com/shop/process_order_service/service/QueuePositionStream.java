@@ -0,0 +1,301 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.QueuePositionDto;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.OrderRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pushes queue position changes to subscribed clients over Server-Sent Events.
+ * <p>
+ * Subscriptions are grouped by shop. A queue change only marks its shop as changed; every
+ * {@code app.queue.stream.flush-interval-ms} the changed shops are walked once and each of their
+ * subscribers receives its current position if it differs from what was last sent. A
+ * subscriber whose order has left the queue receives its final status and the stream is closed.
+ * The final status comes from {@link #orderLeft} or, for an order that left through a reload of
+ * the queue, from the database.
+ * Idle subscriptions hold no thread, only the emitter and the last position sent.
+ * <p>
+ * The scheduler thread only works out what each subscriber should receive; the writes run on a
+ * bounded {@code queue-stream} pool of {@code app.queue.stream.send-threads} threads, so a slow
+ * client cannot hold up other scheduled work. A subscriber gets at most one write in flight, and
+ * one whose write has not finished within {@code app.queue.stream.send-timeout-ms} is dropped:
+ * its emitter is completed with an error, which ends the request and fails the blocked write.
+ * The emitter is locked while a write is in progress, so that runs on a separate
+ * {@code queue-stream-close} pool rather than on the scheduler. Updates the send pool has no room
+ * for are retried on the next flush.
+ */
+@Component
+@Slf4j
+public class QueuePositionStream {
+
+    static final String EVENT_NAME = "queue-position";
+
+    private final ShopQueueEngine shopQueueEngine;
+    private final OrderRepository orderRepository;
+    private final long timeoutMs;
+    private final long sendTimeoutMs;
+    private final ThreadPoolExecutor sendExecutor;
+    private final ThreadPoolExecutor closeExecutor;
+    private final ConcurrentMap<Long, Set<Subscription>> subscriptionsByShop = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, Map<Long, OrderStatus>> departuresByShop = new ConcurrentHashMap<>();
+    private final Set<Long> changedShops = ConcurrentHashMap.newKeySet();
+
+    public QueuePositionStream(ShopQueueEngine shopQueueEngine,
+                               OrderRepository orderRepository,
+                               @Value("${app.queue.stream.timeout-ms:1800000}") long timeoutMs,
+                               @Value("${app.queue.stream.send-threads:4}") int sendThreads,
+                               @Value("${app.queue.stream.send-queue-capacity:10000}") int sendQueueCapacity,
+                               @Value("${app.queue.stream.send-timeout-ms:10000}") long sendTimeoutMs) {
+        this.shopQueueEngine = shopQueueEngine;
+        this.orderRepository = orderRepository;
+        this.timeoutMs = timeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.sendExecutor = new ThreadPoolExecutor(sendThreads, sendThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(sendQueueCapacity), new CustomizableThreadFactory("queue-stream-"));
+        // At most one close per blocked write, and only send threads write. A close that finds no
+        // free thread is skipped; the send thread completes a dropped emitter once its write returns.
+        this.closeExecutor = new ThreadPoolExecutor(0, sendThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new CustomizableThreadFactory("queue-stream-close-"), new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Opens a stream for one order. The current position is sent right away; if the order is not
+     * queued any more the stream is closed after that.
+     */
+    public SseEmitter subscribe(Long customerId, QueuePositionDto current) {
+        return subscribe(customerId, current, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter subscribe(Long customerId, QueuePositionDto current, SseEmitter emitter) {
+        Long orderId = current.getOrderId();
+        Optional<ShopQueueEngine.QueueEntry> entry = shopQueueEngine.find(orderId)
+                .filter(queued -> queued.customerId().equals(customerId));
+        if (entry.isEmpty()) {
+            send(emitter, current);
+            emitter.complete();
+            return emitter;
+        }
+
+        Subscription subscription = new Subscription(orderId, customerId, emitter);
+        Set<Subscription> subscriptions = subscriptionsByShop.computeIfAbsent(entry.get().shopId(),
+                id -> ConcurrentHashMap.newKeySet());
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscriptions.remove(subscription));
+
+        subscription.sendIfChanged(current);
+        return emitter;
+    }
+
+    public void shopChanged(Long shopId) {
+        if (subscriptionsByShop.containsKey(shopId)) {
+            changedShops.add(shopId);
+        }
+    }
+
+    public void orderLeft(Long shopId, Long orderId, OrderStatus status) {
+        if (subscriptionsByShop.containsKey(shopId)) {
+            departuresByShop.computeIfAbsent(shopId, id -> new ConcurrentHashMap<>()).put(orderId, status);
+            changedShops.add(shopId);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscriptionsByShop.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${app.queue.stream.flush-interval-ms:500}")
+    public void flush() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Long> shops = changedShops.iterator(); shops.hasNext(); ) {
+            Long shopId = shops.next();
+            shops.remove();
+            Map<Long, OrderStatus> departures = departuresByShop.remove(shopId);
+            Set<Subscription> subscriptions = subscriptionsByShop.get(shopId);
+            if (subscriptions != null) {
+                subscriptions.forEach(subscription -> publish(shopId, subscriptions, subscription, departures, now));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sendExecutor.shutdownNow();
+        closeExecutor.shutdownNow();
+    }
+
+    private void publish(Long shopId, Set<Subscription> subscriptions, Subscription subscription,
+                         Map<Long, OrderStatus> departures, long now) {
+        OrderStatus finalStatus = departures == null ? null : departures.get(subscription.orderId);
+        long sendingSince = subscription.sendingSince;
+        if (sendingSince != 0) {
+            if (now - sendingSince > sendTimeoutMs) {
+                log.debug("Dropping queue stream for order {}: send did not finish within {} ms",
+                        subscription.orderId, sendTimeoutMs);
+                subscriptions.remove(subscription);
+                subscription.dropped = true;
+                TimeoutException timeout = new TimeoutException("Queue stream send did not finish within "
+                        + sendTimeoutMs + " ms");
+                closeExecutor.execute(() -> subscription.emitter.completeWithError(timeout));
+            } else {
+                publishLater(shopId, subscription, finalStatus);
+            }
+            return;
+        }
+
+        Optional<QueuePositionDto> position = shopQueueEngine.find(subscription.orderId)
+                .filter(entry -> entry.customerId().equals(subscription.customerId))
+                .map(ShopQueueEngine.QueueEntry::toQueuePositionDto);
+        if (position.isPresent()) {
+            submit(shopId, subscription, null, now,
+                    () -> deliver(subscriptions, subscription, position.get(), false));
+        } else if (finalStatus != null) {
+            submit(shopId, subscription, finalStatus, now,
+                    () -> deliver(subscriptions, subscription, finalPosition(subscription.orderId, finalStatus), true));
+        } else {
+            submit(shopId, subscription, null, now, () -> deliverLookedUpStatus(shopId, subscriptions, subscription));
+        }
+    }
+
+    /**
+     * Runs the write on the send pool, or revisits the subscriber on the next flush if the pool
+     * is full.
+     */
+    private void submit(Long shopId, Subscription subscription, OrderStatus finalStatus, long now, Runnable write) {
+        subscription.sendingSince = now;
+        try {
+            sendExecutor.execute(() -> {
+                try {
+                    write.run();
+                } finally {
+                    subscription.sendingSince = 0;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            subscription.sendingSince = 0;
+            publishLater(shopId, subscription, finalStatus);
+        }
+    }
+
+    /**
+     * Sends the update; {@code last} closes the stream after it. A failed write drops the subscriber.
+     */
+    private static void deliver(Set<Subscription> subscriptions, Subscription subscription,
+                                QueuePositionDto position, boolean last) {
+        if (subscription.dropped) {
+            subscription.emitter.complete();
+        } else if (!subscription.sendIfChanged(position)) {
+            subscriptions.remove(subscription);
+        } else if (last || subscription.dropped) {
+            subscriptions.remove(subscription);
+            subscription.emitter.complete();
+        }
+    }
+
+    /**
+     * Sends the final status of an order that is no longer queued although no departure was
+     * recorded for it, as happens when its queue is reloaded after a change made elsewhere. An
+     * order that is still active in the database is looked at again on the next change.
+     */
+    private void deliverLookedUpStatus(Long shopId, Set<Subscription> subscriptions, Subscription subscription) {
+        Optional<OrderStatus> status;
+        try {
+            status = orderRepository.findStatusById(subscription.orderId);
+        } catch (DataAccessException e) {
+            log.warn("Could not look up final status of order {}: {}", subscription.orderId, e.getMessage());
+            publishLater(shopId, subscription, null);
+            return;
+        }
+        status.filter(finalStatus -> !finalStatus.isActive()).ifPresent(finalStatus ->
+                deliver(subscriptions, subscription, finalPosition(subscription.orderId, finalStatus), true));
+    }
+
+    private static QueuePositionDto finalPosition(Long orderId, OrderStatus finalStatus) {
+        return QueuePositionDto.builder()
+                .orderId(orderId)
+                .currentPosition(0)
+                .totalInQueue(0)
+                .estimatedWaitTime(0)
+                .status(finalStatus.toString())
+                .build();
+    }
+
+    /**
+     * Revisits the subscriber on the next flush, keeping its final status if its order left.
+     */
+    private void publishLater(Long shopId, Subscription subscription, OrderStatus finalStatus) {
+        if (finalStatus != null) {
+            departuresByShop.computeIfAbsent(shopId, id -> new ConcurrentHashMap<>())
+                    .putIfAbsent(subscription.orderId, finalStatus);
+        }
+        changedShops.add(shopId);
+    }
+
+    private static boolean send(SseEmitter emitter, QueuePositionDto position) {
+        try {
+            emitter.send(SseEmitter.event()
+                    .name(EVENT_NAME)
+                    .id(String.valueOf(System.currentTimeMillis()))
+                    .data(position, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping queue stream for order {}: {}", position.getOrderId(), e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private static final class Subscription {
+        private final Long orderId;
+        private final Long customerId;
+        private final SseEmitter emitter;
+        private QueuePositionDto lastSent;
+        // Written by the scheduler and the send pool, read by the scheduler without locking
+        private volatile long sendingSince;
+        private volatile boolean dropped;
+
+        private Subscription(Long orderId, Long customerId, SseEmitter emitter) {
+            this.orderId = orderId;
+            this.customerId = customerId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return {@code false} if the write failed and the stream was closed
+         */
+        synchronized boolean sendIfChanged(QueuePositionDto position) {
+            if (position.equals(lastSent)) {
+                return true;
+            }
+            if (!send(emitter, position)) {
+                return false;
+            }
+            lastSent = position;
+            return true;
+        }
+    }
+}
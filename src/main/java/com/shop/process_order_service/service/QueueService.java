@@ -1,41 +1,239 @@
 package com.shop.process_order_service.service;
 
 
+import com.shop.process_order_service.dto.QueuePositionDto;
+import com.shop.process_order_service.entity.CoffeeShop;
 import com.shop.process_order_service.entity.Order;
-import com.shop.process_order_service.repository.OrderRepository;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.exception.QueueFullException;
+import com.shop.process_order_service.repository.ShopQueueVersionStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class QueueService {
 
-    private final OrderRepository orderRepository;
-    private static final int AVERAGE_PREPARATION_TIME_MINUTES = 5;
+    private final ActiveOrderCounter activeOrderCounter;
+    private final ShopQueueLock shopQueueLock;
+    private final ShopQueueEngine shopQueueEngine;
+    private final PrepTimeModel prepTimeModel;
+    private final QueuePositionStream queuePositionStream;
+    private final QueueUpdateNotifier queueUpdateNotifier;
+    private final ShopQueueVersionStore shopQueueVersionStore;
+    // Queue version of each shop that this instance's memory reflects, in advisory lock mode
+    private final ConcurrentMap<Long, Long> appliedVersions = new ConcurrentHashMap<>();
 
-    public Integer assignQueuePosition(Long shopId) {
-        Integer currentCount = orderRepository.countActiveOrdersByShop(shopId);
-        return currentCount + 1;
+    /**
+     * Admits a new order to the shop's queue and returns its position at the back of the queue.
+     *
+     * @throws QueueFullException if the shop already has {@code maxQueueSize} active orders
+     */
+    public Integer admitOrder(CoffeeShop shop) {
+        lockShopQueue(shop.getId());
+        int position = activeOrderCounter.tryAcquire(shop.getId(), shop.getMaxQueueSize());
+        if (position < 0) {
+            throw new QueueFullException("Queue is full for shop: " + shop.getName() + ". Please try again later.",
+                    shop.getId());
+        }
+        return position;
+    }
+
+    /**
+     * Puts a saved order at the back of its shop's queue once the transaction commits.
+     */
+    public void enqueueOrder(Order order) {
+        Long shopId = order.getCoffeeShop().getId();
+        lockShopQueue(shopId);
+        TransactionCallbacks.afterCommit(() -> {
+            shopQueueEngine.enqueue(order);
+            queuePositionStream.shopChanged(shopId);
+            queueUpdateNotifier.orderQueued(shopId, order.getId(), order.getEstimatedWaitTime());
+        });
     }
 
-    public Integer calculateEstimatedWaitTime(Long shopId, Integer queuePosition) {
-        return queuePosition * AVERAGE_PREPARATION_TIME_MINUTES;
+    /**
+     * Takes a cancelled or completed order out of its shop's queue. The orders behind it move up
+     * by one without any of them being written.
+     */
+    public void removeFromQueue(Order order) {
+        Long shopId = order.getCoffeeShop().getId();
+        lockShopQueue(shopId);
+        activeOrderCounter.release(shopId);
+        OrderStatus finalStatus = order.getStatus();
+        TransactionCallbacks.afterCommit(() -> {
+            shopQueueEngine.remove(shopId, order.getId());
+            queuePositionStream.orderLeft(shopId, order.getId(), finalStatus);
+            queueUpdateNotifier.shopChanged(shopId);
+        });
+        log.info("Order {} removed from queue of shop: {}", order.getId(), shopId);
     }
 
-    public void reorderQueue(Long shopId) {
-        List<Order> activeOrders = orderRepository.findActiveOrdersByShop(shopId);
+    /**
+     * Records a status change of an order that stays in the queue once the transaction commits.
+     */
+    public void updateQueuedStatus(Order order) {
+        Long shopId = order.getCoffeeShop().getId();
+        lockShopQueue(shopId);
+        TransactionCallbacks.afterCommit(() -> {
+            shopQueueEngine.updateStatus(order);
+            queuePositionStream.shopChanged(shopId);
+        });
+    }
 
-        for (int i = 0; i < activeOrders.size(); i++) {
-            Order order = activeOrders.get(i);
-            order.setQueuePosition(i + 1);
-            order.setEstimatedWaitTime(calculateEstimatedWaitTime(shopId, i + 1));
+    /**
+     * Records status changes of many orders of one shop once the transaction commits, with a
+     * single update of the shop's queue: orders in {@code left} are cancelled or completed and
+     * leave the queue, orders in {@code stillQueued} stay with their new status.
+     */
+    public void applyStatusChanges(Long shopId, List<Order> left, List<Order> stillQueued) {
+        lockShopQueue(shopId);
+        if (!left.isEmpty()) {
+            activeOrderCounter.release(shopId, left.size());
         }
+        Map<Long, OrderStatus> finalStatuses = new LinkedHashMap<>();
+        left.forEach(order -> finalStatuses.put(order.getId(), order.getStatus()));
+        List<Order> changedOrders = List.copyOf(stillQueued);
+
+        TransactionCallbacks.afterCommit(() -> {
+            shopQueueEngine.applyChanges(shopId, changedOrders, finalStatuses.keySet());
+            finalStatuses.forEach((orderId, status) -> queuePositionStream.orderLeft(shopId, orderId, status));
+            queuePositionStream.shopChanged(shopId);
+            if (!finalStatuses.isEmpty()) {
+                queueUpdateNotifier.shopChanged(shopId);
+            }
+        });
+        log.info("{} orders left and {} orders changed status in queue of shop: {}",
+                left.size(), stillQueued.size(), shopId);
+    }
+
+    /**
+     * Answers a queue status request from memory.
+     *
+     * @return the order's live queue position, or empty if the order is not queued on this instance
+     * or belongs to another customer
+     */
+    public Optional<QueuePositionDto> findQueuePosition(Long orderId, Long customerId) {
+        return shopQueueEngine.find(orderId)
+                .filter(entry -> entry.customerId().equals(customerId))
+                .map(ShopQueueEngine.QueueEntry::toQueuePositionDto);
+    }
+
+    /**
+     * Answers a queue status request for an order that is active in the database but not queued
+     * in this instance's memory, for example because another instance admitted it. The shop's
+     * queue is reloaded while its lock is held, so no change to it can commit in between.
+     *
+     * @return the order's live queue position, or empty if it left the queue in the meantime
+     */
+    @Transactional
+    public Optional<QueuePositionDto> reloadQueuePosition(Long shopId, Long orderId, Long customerId) {
+        boolean reloaded = lockShopQueueForRead(shopId);
+        if (!reloaded && shopQueueEngine.find(orderId).isEmpty()) {
+            shopQueueEngine.reload(shopId);
+            queuePositionStream.shopChanged(shopId);
+        }
+        return findQueuePosition(orderId, customerId);
+    }
+
+    /**
+     * Locks the queues of all given shops for the rest of the transaction, in a deadlock-free order.
+     * Must be called before admitting orders to more than one shop in the same transaction.
+     */
+    public void lockShopQueues(Collection<Long> shopIds) {
+        shopIds.stream()
+                .distinct()
+                .sorted()
+                .forEach(this::lockShopQueue);
+    }
+
+    public Integer getActiveOrderCount(Long shopId) {
+        return activeOrderCounter.get(shopId);
+    }
 
-        orderRepository.saveAll(activeOrders);
-        log.info("Queue reordered for shop: {}", shopId);
+    /**
+     * Estimates the wait in minutes of a new order: the remaining work of the least busy lane of
+     * its shop plus the order's own preparation time.
+     */
+    public Integer calculateEstimatedWaitTime(Order order) {
+        return calculateEstimatedWaitTime(order, 0);
+    }
+
+    /**
+     * Same as {@link #calculateEstimatedWaitTime(Order)} for an order that joins behind
+     * {@code pendingWork} seconds of orders admitted to the same shop but not queued yet.
+     */
+    public Integer calculateEstimatedWaitTime(Order order, long pendingWork) {
+        long workAhead = shopQueueEngine.workAheadOfNewOrder(order.getCoffeeShop().getId()) + pendingWork;
+        return ShopQueueEngine.toMinutes(workAhead + estimatePreparationSeconds(order));
+    }
+
+    /**
+     * @return the estimated preparation time of the order in seconds
+     */
+    public int estimatePreparationSeconds(Order order) {
+        return prepTimeModel.estimateSeconds(PrepTimeModel.quantitiesOf(order.getOrderItems()));
+    }
+
+    /**
+     * Feeds the preparation time of an order that went from PROCESSING to COMPLETED into the
+     * preparation time model once the transaction commits.
+     */
+    public void recordPreparationTime(Order order, Duration preparationTime) {
+        Map<Long, Integer> quantities = shopQueueEngine.itemQuantities(order.getId())
+                .orElseGet(() -> PrepTimeModel.quantitiesOf(order.getOrderItems()));
+        TransactionCallbacks.afterCommit(() -> prepTimeModel.record(quantities, preparationTime.toSeconds()));
+    }
+
+    /**
+     * Locks the shop's queue for a transaction that changes it. With the advisory lock the shop's
+     * queue version is advanced too, and becomes this instance's applied version on commit.
+     */
+    private void lockShopQueue(Long shopId) {
+        if (shopQueueLock.lock(shopId) && shopQueueLock.isDistributed()) {
+            long version = shopQueueVersionStore.increment(shopId);
+            catchUp(shopId, version - 1);
+            TransactionCallbacks.afterCommit(() -> appliedVersions.put(shopId, version));
+        }
+    }
+
+    /**
+     * @return {@code true} if the shop's queue was reloaded from the database
+     */
+    private boolean lockShopQueueForRead(Long shopId) {
+        return shopQueueLock.lock(shopId) && shopQueueLock.isDistributed()
+                && catchUp(shopId, shopQueueVersionStore.current(shopId));
+    }
+
+    /**
+     * Reloads the shop's queue from the database unless this instance has already applied the
+     * given version, i.e. unless another instance has changed the queue since this one last did.
+     * Must be called with the shop's advisory lock held.
+     *
+     * @return {@code true} if the queue was reloaded
+     */
+    private boolean catchUp(Long shopId, long version) {
+        Long applied = appliedVersions.get(shopId);
+        if (applied != null && applied == version) {
+            return false;
+        }
+        activeOrderCounter.resync(shopId);
+        shopQueueEngine.reload(shopId);
+        queuePositionStream.shopChanged(shopId);
+        queueUpdateNotifier.shopChanged(shopId);
+        appliedVersions.put(shopId, version);
+        return true;
     }
 }
@@ -0,0 +1,98 @@
+package com.shop.process_order_service.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Tells customers when their estimated wait changes noticeably because the queue moved.
+ * <p>
+ * A queue change only marks its shop as changed. Every {@code app.notification.queue-update.window-ms}
+ * each changed shop is walked once, so any number of changes within a window collapse into the
+ * latest state of each order. Orders whose estimated wait moved by at least
+ * {@code app.notification.queue-update.min-eta-change-minutes} since the customer was last told
+ * are sent together in one {@link NotificationService#sendQueueUpdateNotifications(List)} call
+ * per shop.
+ */
+@Component
+@Slf4j
+public class QueueUpdateNotifier {
+
+    private final ShopQueueEngine shopQueueEngine;
+    private final NotificationService notificationService;
+    private final int minEtaChangeMinutes;
+    private final Set<Long> changedShops = ConcurrentHashMap.newKeySet();
+    /** Last estimated wait in minutes each customer was told, by shop and order. */
+    private final ConcurrentMap<Long, ConcurrentMap<Long, Integer>> notifiedEtasByShop = new ConcurrentHashMap<>();
+
+    public QueueUpdateNotifier(ShopQueueEngine shopQueueEngine,
+                               NotificationService notificationService,
+                               @Value("${app.notification.queue-update.min-eta-change-minutes:2}") int minEtaChangeMinutes) {
+        this.shopQueueEngine = shopQueueEngine;
+        this.notificationService = notificationService;
+        this.minEtaChangeMinutes = minEtaChangeMinutes;
+    }
+
+    /**
+     * Remembers the estimated wait the customer was given with the order confirmation.
+     */
+    public void orderQueued(Long shopId, Long orderId, Integer estimatedWaitTime) {
+        if (estimatedWaitTime != null) {
+            notifiedEtasFor(shopId).put(orderId, estimatedWaitTime);
+        }
+    }
+
+    public void shopChanged(Long shopId) {
+        changedShops.add(shopId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.notification.queue-update.window-ms:5000}")
+    public void flush() {
+        for (Iterator<Long> shops = changedShops.iterator(); shops.hasNext(); ) {
+            Long shopId = shops.next();
+            shops.remove();
+            try {
+                notifyShop(shopId);
+            } catch (RuntimeException e) {
+                log.warn("Queue update notifications for shop {} failed: {}", shopId, e.getMessage());
+            }
+        }
+    }
+
+    private void notifyShop(Long shopId) {
+        ConcurrentMap<Long, Integer> notifiedEtas = notifiedEtasFor(shopId);
+        List<ShopQueueEngine.QueueEntry> entries = shopQueueEngine.entries(shopId);
+        List<ShopQueueEngine.QueueEntry> changed = new ArrayList<>();
+        Set<Long> queued = new HashSet<>(entries.size());
+
+        for (ShopQueueEngine.QueueEntry entry : entries) {
+            queued.add(entry.orderId());
+            Integer notified = notifiedEtas.putIfAbsent(entry.orderId(), entry.estimatedWaitTime());
+            if (notified != null && Math.abs(notified - entry.estimatedWaitTime()) >= minEtaChangeMinutes) {
+                notifiedEtas.put(entry.orderId(), entry.estimatedWaitTime());
+                changed.add(entry);
+            }
+        }
+        // Forget orders that have left the queue. An order missing from the snapshot may have
+        // joined after it was taken, so only orders the engine no longer holds are dropped.
+        notifiedEtas.keySet().removeIf(orderId -> !queued.contains(orderId) && shopQueueEngine.find(orderId).isEmpty());
+
+        if (!changed.isEmpty()) {
+            notificationService.sendQueueUpdateNotifications(changed);
+            log.debug("Sent {} queue updates for shop {} ({} orders queued)", changed.size(), shopId, entries.size());
+        }
+    }
+
+    private ConcurrentMap<Long, Integer> notifiedEtasFor(Long shopId) {
+        return notifiedEtasByShop.computeIfAbsent(shopId, id -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,18 @@
+package com.shop.process_order_service.service;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a {@code @Transactional} service method whose whole transaction is run again when it
+ * loses an optimistic locking race. Only for methods that re-read and re-validate everything they
+ * change, so that a repeated attempt either applies the same change or fails validation.
+ *
+ * @see OptimisticLockRetryAspect
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnOptimisticLock {
+}
@@ -0,0 +1,145 @@
+package com.shop.process_order_service.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable grid index over shop coordinates. The globe is cut into cells of
+ * {@code cellSizeDegrees} latitude by longitude; a radius query visits only the cells overlapping
+ * the bounding box of its circle and checks the exact great-circle distance of the shops in them.
+ * Not meant for radii that span a large part of the globe, where it degrades to a full scan.
+ */
+final class ShopGrid {
+
+    static final double EARTH_RADIUS_KM = 6371.0;
+    private static final double KM_PER_DEGREE_LATITUDE = Math.PI * EARTH_RADIUS_KM / 180.0;
+
+    /**
+     * A shop's coordinates together with what nearby-shop answers show about it.
+     */
+    record Location(Long shopId, String name, String address, double latitude, double longitude,
+                    int maxQueueSize, int lanes) {
+    }
+
+    /**
+     * A shop within a query radius and its distance from the query point in kilometres.
+     */
+    record Hit(Location location, double distanceKm) {
+    }
+
+    private final double cellSizeDegrees;
+    private final int latitudeCells;
+    private final int longitudeCells;
+    private final Map<Long, List<Location>> cells = new HashMap<>();
+    private final int size;
+
+    ShopGrid(Collection<Location> locations, double cellSizeDegrees) {
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.latitudeCells = (int) Math.ceil(180.0 / cellSizeDegrees);
+        this.longitudeCells = (int) Math.ceil(360.0 / cellSizeDegrees);
+        for (Location location : locations) {
+            cells.computeIfAbsent(cellKey(latitudeCell(location.latitude()), longitudeCell(location.longitude())),
+                    key -> new ArrayList<>()).add(location);
+        }
+        this.size = locations.size();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return every shop within {@code radiusKm} of the point, nearest first
+     */
+    List<Hit> withinRadius(double latitude, double longitude, double radiusKm) {
+        double latitudeDelta = radiusKm / KM_PER_DEGREE_LATITUDE;
+        double minLatitude = Math.max(-90.0, latitude - latitudeDelta);
+        double maxLatitude = Math.min(90.0, latitude + latitudeDelta);
+
+        int minLatitudeCell = latitudeCell(minLatitude);
+        int maxLatitudeCell = latitudeCell(maxLatitude);
+        int longitudeSpan = longitudeCellSpan(minLatitude, maxLatitude, radiusKm);
+        int longitudeCount = (int) Math.min(2L * longitudeSpan + 1, longitudeCells);
+        long cellsToVisit = (long) (maxLatitudeCell - minLatitudeCell + 1) * longitudeCount;
+
+        List<Hit> hits = new ArrayList<>();
+        if (cellsToVisit >= cells.size()) {
+            cells.values().forEach(bucket -> collect(bucket, latitude, longitude, radiusKm, hits));
+        } else {
+            int firstLongitudeCell = longitudeCell(longitude) - longitudeSpan;
+            for (int latitudeCell = minLatitudeCell; latitudeCell <= maxLatitudeCell; latitudeCell++) {
+                for (int offset = 0; offset < longitudeCount; offset++) {
+                    int longitudeCell = Math.floorMod(firstLongitudeCell + offset, longitudeCells);
+                    List<Location> bucket = cells.get(cellKey(latitudeCell, longitudeCell));
+                    if (bucket != null) {
+                        collect(bucket, latitude, longitude, radiusKm, hits);
+                    }
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distanceKm));
+        return hits;
+    }
+
+    /**
+     * @return up to {@code k} shops nearest to the point and no further than {@code maxRadiusKm}, nearest first
+     */
+    List<Hit> nearest(double latitude, double longitude, int k, double maxRadiusKm) {
+        // Every shop within the searched radius is found, so once k shops are within it they are the k nearest.
+        double radiusKm = Math.min(maxRadiusKm, cellSizeDegrees * KM_PER_DEGREE_LATITUDE);
+        while (true) {
+            List<Hit> hits = withinRadius(latitude, longitude, radiusKm);
+            if (hits.size() >= k || radiusKm >= maxRadiusKm || hits.size() == size) {
+                return hits.size() > k ? hits.subList(0, k) : hits;
+            }
+            radiusKm = Math.min(maxRadiusKm, radiusKm * 2);
+        }
+    }
+
+    static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double dLatitude = Math.toRadians(latitude2 - latitude1);
+        double dLongitude = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(dLatitude / 2) * Math.sin(dLatitude / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(dLongitude / 2) * Math.sin(dLongitude / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static void collect(List<Location> bucket, double latitude, double longitude, double radiusKm, List<Hit> hits) {
+        for (Location location : bucket) {
+            double distance = distanceKm(latitude, longitude, location.latitude(), location.longitude());
+            if (distance <= radiusKm) {
+                hits.add(new Hit(location, distance));
+            }
+        }
+    }
+
+    /**
+     * @return how many longitude cells either side of the center the bounding box reaches
+     */
+    private int longitudeCellSpan(double minLatitude, double maxLatitude, double radiusKm) {
+        // Longitude degrees are shortest at the box edge furthest from the equator.
+        double widestLatitude = Math.max(Math.abs(minLatitude), Math.abs(maxLatitude));
+        double kmPerDegreeLongitude = KM_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(widestLatitude));
+        if (widestLatitude >= 90.0 || radiusKm / kmPerDegreeLongitude >= 180.0) {
+            return longitudeCells / 2;
+        }
+        return (int) Math.ceil(radiusKm / kmPerDegreeLongitude / cellSizeDegrees);
+    }
+
+    private int latitudeCell(double latitude) {
+        return Math.min(latitudeCells - 1, (int) Math.floor((latitude + 90.0) / cellSizeDegrees));
+    }
+
+    private int longitudeCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180.0) / cellSizeDegrees), longitudeCells);
+    }
+
+    private static long cellKey(int latitudeCell, int longitudeCell) {
+        return ((long) latitudeCell << 32) | longitudeCell;
+    }
+}
@@ -0,0 +1,160 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NearbyShopDto;
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answers nearby-shop queries from an in-memory {@link ShopGrid} instead of computing the
+ * distance to every shop in the database.
+ * <p>
+ * The grid is built from all shops once the application has started and replaced whenever a
+ * shop is created, moved or removed through JPA on this instance. A periodic full reload picks
+ * up changes made elsewhere. Queries read the current grid without locking.
+ * <p>
+ * Shops can also be ranked by how soon an order placed now would be ready for pickup: the later
+ * of the customer's arrival, at {@code app.shops.ranking.travel-speed-kmh}, and the end of the
+ * work queued ahead of the order. Queue loads come from {@link ShopQueueEngine} memory, so
+ * ranking issues no query per candidate. Shops whose queue is full are left out.
+ */
+@Service
+@Slf4j
+public class ShopLocator {
+
+    private final CoffeeShopRepository coffeeShopRepository;
+    private final ShopQueueEngine shopQueueEngine;
+    private final double cellSizeDegrees;
+    private final double travelSpeedKmh;
+    private final double alternativesRadiusKm;
+    private final int alternativesLimit;
+    private final Map<Long, ShopGrid.Location> locations = new HashMap<>();
+    private volatile ShopGrid grid;
+
+    public ShopLocator(CoffeeShopRepository coffeeShopRepository,
+                       ShopQueueEngine shopQueueEngine,
+                       @Value("${app.shops.locator.cell-size-degrees:0.05}") double cellSizeDegrees,
+                       @Value("${app.shops.ranking.travel-speed-kmh:5}") double travelSpeedKmh,
+                       @Value("${app.shops.ranking.alternatives-radius-km:3}") double alternativesRadiusKm,
+                       @Value("${app.shops.ranking.alternatives-limit:3}") int alternativesLimit) {
+        this.coffeeShopRepository = coffeeShopRepository;
+        this.shopQueueEngine = shopQueueEngine;
+        this.cellSizeDegrees = cellSizeDegrees;
+        this.travelSpeedKmh = travelSpeedKmh;
+        this.alternativesRadiusKm = alternativesRadiusKm;
+        this.alternativesLimit = alternativesLimit;
+        this.grid = new ShopGrid(List.of(), cellSizeDegrees);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${app.shops.locator.refresh-interval-ms:300000}",
+            fixedDelayString = "${app.shops.locator.refresh-interval-ms:300000}")
+    public void reload() {
+        List<CoffeeShop> shops = coffeeShopRepository.findAll();
+        synchronized (locations) {
+            locations.clear();
+            shops.forEach(shop -> locations.put(shop.getId(), locationOf(shop)));
+            grid = new ShopGrid(locations.values(), cellSizeDegrees);
+        }
+        log.debug("Shop locator loaded {} shops", shops.size());
+    }
+
+    public void shopChanged(CoffeeShop shop) {
+        synchronized (locations) {
+            locations.put(shop.getId(), locationOf(shop));
+            grid = new ShopGrid(locations.values(), cellSizeDegrees);
+        }
+    }
+
+    public void shopRemoved(Long shopId) {
+        synchronized (locations) {
+            if (locations.remove(shopId) != null) {
+                grid = new ShopGrid(locations.values(), cellSizeDegrees);
+            }
+        }
+    }
+
+    /**
+     * @return the shops within {@code radiusKm} of the point, nearest first, at most {@code limit} of them
+     */
+    public List<NearbyShopDto> findNearby(double latitude, double longitude, double radiusKm, int limit) {
+        return grid.nearest(latitude, longitude, limit, radiusKm).stream()
+                .map(this::toDto)
+                .toList();
+    }
+
+    /**
+     * @return the shops within {@code radiusKm} of the point that could take an order, soonest
+     * ready first, at most {@code limit} of them
+     */
+    public List<NearbyShopDto> findShortestWait(double latitude, double longitude, double radiusKm, int limit) {
+        return rankByReadyTime(grid.withinRadius(latitude, longitude, radiusKm), null, limit);
+    }
+
+    /**
+     * @return shops near the given one that could take an order, soonest ready first, for
+     * customers turned away by its full queue
+     */
+    public List<NearbyShopDto> findAlternatives(Long shopId) {
+        ShopGrid.Location shop;
+        synchronized (locations) {
+            shop = locations.get(shopId);
+        }
+        if (shop == null) {
+            return List.of();
+        }
+        return rankByReadyTime(grid.withinRadius(shop.latitude(), shop.longitude(), alternativesRadiusKm),
+                shopId, alternativesLimit);
+    }
+
+    private List<NearbyShopDto> rankByReadyTime(List<ShopGrid.Hit> candidates, Long excludedShopId, int limit) {
+        List<NearbyShopDto> open = new ArrayList<>();
+        for (ShopGrid.Hit hit : candidates) {
+            if (hit.location().shopId().equals(excludedShopId)) {
+                continue;
+            }
+            NearbyShopDto shop = toDto(hit);
+            if (shop.getQueueLength() < hit.location().maxQueueSize()) {
+                open.add(shop);
+            }
+        }
+        open.sort(Comparator.comparingInt((NearbyShopDto shop) ->
+                        Math.max(shop.getTravelMinutes(), shop.getEstimatedWaitMinutes()))
+                .thenComparingDouble(NearbyShopDto::getDistanceKm));
+        return open.size() > limit ? open.subList(0, limit) : open;
+    }
+
+    private static ShopGrid.Location locationOf(CoffeeShop shop) {
+        return new ShopGrid.Location(shop.getId(), shop.getName(), shop.getAddress(),
+                shop.getLatitude(), shop.getLongitude(),
+                shop.getMaxQueueSize() == null ? Integer.MAX_VALUE : shop.getMaxQueueSize(),
+                shop.getNumberOfQueues() == null ? 1 : shop.getNumberOfQueues());
+    }
+
+    private NearbyShopDto toDto(ShopGrid.Hit hit) {
+        ShopGrid.Location location = hit.location();
+        ShopQueueEngine.QueueLoad load = shopQueueEngine.currentLoad(location.shopId(), location.lanes());
+        return NearbyShopDto.builder()
+                .shopId(location.shopId())
+                .name(location.name())
+                .address(location.address())
+                .latitude(location.latitude())
+                .longitude(location.longitude())
+                .distanceKm(Math.round(hit.distanceKm() * 100) / 100.0)
+                .travelMinutes((int) Math.ceil(hit.distanceKm() / travelSpeedKmh * 60))
+                .queueLength(load.queuedOrders())
+                .estimatedWaitMinutes(load.estimatedWaitMinutes())
+                .build();
+    }
+}
@@ -0,0 +1,468 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.QueuePositionDto;
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import com.shop.process_order_service.repository.OrderRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds every shop's queue of active orders in memory so that queue status can be answered
+ * without a database round trip.
+ * <p>
+ * A shop has {@link CoffeeShop#getNumberOfQueues()} lanes that are worked in parallel. A new
+ * order joins the lane with the least remaining preparation work, as estimated by
+ * {@link PrepTimeModel} when the order is queued. An order being prepared counts only the part of
+ * its estimate that is left since {@link Order#getProcessingStartedAt()}. Each queued order holds a
+ * ticket taken from a per-shop sequence, and its position is the rank of that ticket within its
+ * lane, so joining and leaving cost O(log n) and never touch the other orders. When an order
+ * leaves, the last order of the busiest lane moves to the end of the least busy lane as long as
+ * that gets it served sooner.
+ * <p>
+ * All queues are rebuilt from {@link OrderRepository#findActiveOrdersByShop(Long)} once the
+ * application has started; a shop that is not loaded yet is loaded the first time it is used.
+ * Lanes are not persisted, so a rebuild reassigns them in arrival order.
+ * <p>
+ * Every change to a shop's queue gives it a new epoch from an engine-wide sequence, so equal
+ * epochs mean identical queue status for every order of the shop, even across a reload, apart
+ * from wait times that fall while orders are being prepared.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShopQueueEngine {
+
+    private final OrderRepository orderRepository;
+    private final CoffeeShopRepository coffeeShopRepository;
+    private final PrepTimeModel prepTimeModel;
+    private final ConcurrentMap<Long, ShopQueue> shops = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, QueuedOrder> ordersById = new ConcurrentHashMap<>();
+    private final AtomicLong epochs = new AtomicLong();
+
+    /**
+     * Snapshot of one queued order. {@code lane} is 1-based, {@code position} is the order's
+     * place within that lane and {@code estimatedWaitTime} is in minutes.
+     */
+    public record QueueEntry(Long orderId, Long shopId, Long customerId, int lane, int position,
+                             int totalInQueue, int estimatedWaitTime, OrderStatus status) {
+
+        public QueuePositionDto toQueuePositionDto() {
+            return QueuePositionDto.builder()
+                    .orderId(orderId)
+                    .lane(lane)
+                    .currentPosition(position)
+                    .totalInQueue(totalInQueue)
+                    .estimatedWaitTime(estimatedWaitTime)
+                    .status(status.toString())
+                    .build();
+        }
+    }
+
+    /**
+     * Live load of a shop's queue: the number of queued orders, the number of lanes and the
+     * preparation work in seconds ahead of an order that joins now.
+     */
+    public record QueueLoad(int queuedOrders, int lanes, long workAheadSeconds) {
+
+        public int estimatedWaitMinutes() {
+            return toMinutes(workAheadSeconds);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        List<CoffeeShop> allShops = coffeeShopRepository.findAll();
+        allShops.forEach(this::reload);
+        log.info("Queue engine rebuilt for {} shops with {} active orders", allShops.size(), ordersById.size());
+    }
+
+    /**
+     * Puts the order at the back of the least busy lane of its shop.
+     */
+    public void enqueue(Order order) {
+        queueFor(order.getCoffeeShop().getId()).enqueue(order);
+    }
+
+    /**
+     * Takes the order's status and processing start.
+     */
+    public void updateStatus(Order order) {
+        QueuedOrder queued = ordersById.get(order.getId());
+        if (queued != null) {
+            ShopQueue queue = shops.get(queued.shopId);
+            if (queue != null) {
+                queue.update(queued, order);
+            }
+        }
+    }
+
+    public void remove(Long shopId, Long orderId) {
+        queueFor(shopId).remove(orderId);
+    }
+
+    /**
+     * Applies many status changes to one shop's queue at once: the given orders leave it and
+     * the changed orders take their new status. Lanes are rebalanced once for the whole change.
+     */
+    public void applyChanges(Long shopId, Collection<Order> changedOrders, Collection<Long> removedOrderIds) {
+        queueFor(shopId).apply(changedOrders, removedOrderIds);
+    }
+
+    public Optional<QueueEntry> find(Long orderId) {
+        QueuedOrder queued = ordersById.get(orderId);
+        if (queued == null) {
+            return Optional.empty();
+        }
+        ShopQueue queue = shops.get(queued.shopId);
+        return queue == null ? Optional.empty() : queue.entryOf(queued);
+    }
+
+    /**
+     * @return the epoch of the queue holding the order, or empty if the order is not queued or
+     * belongs to another customer
+     */
+    public Optional<Long> queueEpoch(Long orderId, Long customerId) {
+        QueuedOrder queued = ordersById.get(orderId);
+        if (queued == null || !queued.customerId.equals(customerId)) {
+            return Optional.empty();
+        }
+        ShopQueue queue = shops.get(queued.shopId);
+        return queue == null ? Optional.empty() : Optional.of(queue.epoch);
+    }
+
+    /**
+     * @return snapshots of every order queued at the shop, or an empty list if the shop is not loaded
+     */
+    public List<QueueEntry> entries(Long shopId) {
+        ShopQueue queue = shops.get(shopId);
+        return queue == null ? List.of() : queue.entries();
+    }
+
+    public int size(Long shopId) {
+        return queueFor(shopId).size();
+    }
+
+    /**
+     * Reads the shop's queue load from memory only. A shop whose queue is not loaded has not
+     * had an order since the queues were rebuilt, so its queue is empty.
+     */
+    public QueueLoad currentLoad(Long shopId, int laneCount) {
+        ShopQueue queue = shops.get(shopId);
+        return queue == null ? new QueueLoad(0, Math.max(1, laneCount), 0) : queue.load();
+    }
+
+    /**
+     * @return the preparation work in seconds ahead of an order that joins the shop's queue now
+     */
+    public long workAheadOfNewOrder(Long shopId) {
+        return queueFor(shopId).workAheadOfNewOrder();
+    }
+
+    /**
+     * @return the quantity per menu item of a queued order, or empty if it is not queued
+     */
+    public Optional<Map<Long, Integer>> itemQuantities(Long orderId) {
+        return Optional.ofNullable(ordersById.get(orderId)).map(queued -> queued.quantities);
+    }
+
+    /**
+     * Rebuilds the shop's queue from the database.
+     */
+    public void reload(Long shopId) {
+        coffeeShopRepository.findById(shopId).ifPresent(this::reload);
+    }
+
+    private void reload(CoffeeShop shop) {
+        ShopQueue previous = shops.put(shop.getId(), load(shop));
+        if (previous != null) {
+            synchronized (previous) {
+                previous.orders.forEach(ordersById::remove);
+            }
+        }
+    }
+
+    private ShopQueue queueFor(Long shopId) {
+        return shops.computeIfAbsent(shopId, id -> coffeeShopRepository.findById(id)
+                .map(this::load)
+                .orElseGet(() -> new ShopQueue(1)));
+    }
+
+    private ShopQueue load(CoffeeShop shop) {
+        List<Order> activeOrders = orderRepository.findActiveOrdersByShop(shop.getId());
+        ShopQueue queue = new ShopQueue(shop.getNumberOfQueues() == null ? 1 : shop.getNumberOfQueues());
+        activeOrders.forEach(queue::enqueue);
+        log.debug("Loaded queue of {} active orders in {} lanes for shop: {}",
+                activeOrders.size(), queue.lanes.length, shop.getId());
+        return queue;
+    }
+
+    static int toMinutes(long seconds) {
+        return (int) ((seconds + 59) / 60);
+    }
+
+    private static final class QueuedOrder {
+        private final Long orderId;
+        private final Long shopId;
+        private final Long customerId;
+        private final Map<Long, Integer> quantities;
+        private final int work;
+        private OrderRankTree lane;
+        private long ticket;
+        private volatile OrderStatus status;
+        private LocalDateTime processingStartedAt;
+
+        private QueuedOrder(Order order, int work) {
+            this.orderId = order.getId();
+            this.shopId = order.getCoffeeShop().getId();
+            this.customerId = order.getCustomer().getId();
+            this.quantities = PrepTimeModel.quantitiesOf(order.getOrderItems());
+            this.work = work;
+            this.status = order.getStatus();
+            this.processingStartedAt = order.getProcessingStartedAt();
+        }
+
+        /**
+         * @return the seconds of this order's work done by {@code now}, at most its estimate
+         */
+        private long workDone(LocalDateTime now) {
+            if (status != OrderStatus.PROCESSING || processingStartedAt == null) {
+                return 0;
+            }
+            return Math.min(work, Math.max(0, Duration.between(processingStartedAt, now).toSeconds()));
+        }
+    }
+
+    private final class ShopQueue {
+        private final OrderRankTree[] lanes;
+        private final Map<Long, QueuedOrder> orders = new HashMap<>();
+        private final Map<Long, QueuedOrder> ordersByTicket = new HashMap<>();
+        private final Set<QueuedOrder> processing = new HashSet<>();
+        private long nextTicket;
+        private volatile long epoch = epochs.incrementAndGet();
+
+        ShopQueue(int laneCount) {
+            lanes = new OrderRankTree[Math.max(1, laneCount)];
+            for (int i = 0; i < lanes.length; i++) {
+                lanes[i] = new OrderRankTree();
+            }
+        }
+
+        synchronized void enqueue(Order order) {
+            if (orders.containsKey(order.getId())) {
+                return;
+            }
+            QueuedOrder queued = new QueuedOrder(order,
+                    prepTimeModel.estimateSeconds(PrepTimeModel.quantitiesOf(order.getOrderItems())));
+            orders.put(queued.orderId, queued);
+            ordersById.put(queued.orderId, queued);
+            if (queued.status == OrderStatus.PROCESSING) {
+                processing.add(queued);
+            }
+            append(queued, leastBusyLane(LocalDateTime.now()));
+            changed();
+        }
+
+        synchronized void update(QueuedOrder queued, Order order) {
+            if (orders.get(queued.orderId) == queued) {
+                setStatus(queued, order);
+                changed();
+            }
+        }
+
+        synchronized void remove(Long orderId) {
+            if (detach(orderId)) {
+                rebalance(lanes.length);
+                changed();
+            }
+        }
+
+        synchronized void apply(Collection<Order> changedOrders, Collection<Long> removedOrderIds) {
+            int removed = 0;
+            for (Long orderId : removedOrderIds) {
+                if (detach(orderId)) {
+                    removed++;
+                }
+            }
+            for (Order order : changedOrders) {
+                QueuedOrder queued = orders.get(order.getId());
+                if (queued != null) {
+                    setStatus(queued, order);
+                }
+            }
+            rebalance(removed * lanes.length);
+            changed();
+        }
+
+        private boolean detach(Long orderId) {
+            QueuedOrder queued = orders.remove(orderId);
+            if (queued == null) {
+                return false;
+            }
+            ordersById.remove(orderId, queued);
+            ordersByTicket.remove(queued.ticket);
+            processing.remove(queued);
+            queued.lane.remove(queued.ticket);
+            return true;
+        }
+
+        private void setStatus(QueuedOrder queued, Order order) {
+            queued.status = order.getStatus();
+            queued.processingStartedAt = order.getProcessingStartedAt();
+            if (queued.status == OrderStatus.PROCESSING) {
+                processing.add(queued);
+            } else {
+                processing.remove(queued);
+            }
+        }
+
+        void changed() {
+            epoch = epochs.incrementAndGet();
+        }
+
+        synchronized Optional<QueueEntry> entryOf(QueuedOrder queued) {
+            if (orders.get(queued.orderId) != queued) {
+                return Optional.empty();
+            }
+            return Optional.of(entry(queued));
+        }
+
+        synchronized List<QueueEntry> entries() {
+            List<QueueEntry> entries = new ArrayList<>(orders.size());
+            LocalDateTime now = LocalDateTime.now();
+            orders.values().forEach(queued -> entries.add(entry(queued, now)));
+            return entries;
+        }
+
+        private QueueEntry entry(QueuedOrder queued) {
+            return entry(queued, LocalDateTime.now());
+        }
+
+        private QueueEntry entry(QueuedOrder queued, LocalDateTime now) {
+            OrderRankTree lane = queued.lane;
+            long workAhead = lane.weightBefore(queued.ticket) - workDone(lane, queued.ticket, now);
+            int estimatedWaitTime = toMinutes(workAhead + queued.work - queued.workDone(now));
+            return new QueueEntry(queued.orderId, queued.shopId, queued.customerId, laneNumber(lane),
+                    lane.rank(queued.ticket), orders.size(), estimatedWaitTime, queued.status);
+        }
+
+        synchronized int size() {
+            return orders.size();
+        }
+
+        synchronized long workAheadOfNewOrder() {
+            LocalDateTime now = LocalDateTime.now();
+            return remainingWork(leastBusyLane(now), now);
+        }
+
+        synchronized QueueLoad load() {
+            return new QueueLoad(orders.size(), lanes.length, workAheadOfNewOrder());
+        }
+
+        /**
+         * @return the seconds of work left in the lane at {@code now}
+         */
+        private long remainingWork(OrderRankTree lane, LocalDateTime now) {
+            return lane.totalWeight() - workDone(lane, Long.MAX_VALUE, now);
+        }
+
+        /**
+         * @return the seconds of work already done on the lane's orders with a ticket before
+         * {@code ticket}. Only orders being prepared have any, and there are few of those.
+         */
+        private long workDone(OrderRankTree lane, long ticket, LocalDateTime now) {
+            long done = 0;
+            for (QueuedOrder queued : processing) {
+                if (queued.lane == lane && queued.ticket < ticket) {
+                    done += queued.workDone(now);
+                }
+            }
+            return done;
+        }
+
+        private void append(QueuedOrder queued, OrderRankTree lane) {
+            queued.ticket = ++nextTicket;
+            queued.lane = lane;
+            ordersByTicket.put(queued.ticket, queued);
+            lane.insert(queued.ticket, queued.work);
+        }
+
+        /**
+         * Moves orders from the back of the busiest lane to the least busy one while that makes
+         * the moved order finish earlier, at most {@code maxMoves} times. Orders already in the
+         * target lane are not pushed back.
+         */
+        private void rebalance(int maxMoves) {
+            LocalDateTime now = LocalDateTime.now();
+            for (int moves = 0; moves < maxMoves; moves++) {
+                OrderRankTree busiest = busiestLane(now);
+                OrderRankTree leastBusy = leastBusyLane(now);
+                if (busiest == leastBusy) {
+                    return;
+                }
+                QueuedOrder last = ordersByTicket.get(busiest.lastKey());
+                long remainingLast = last.work - last.workDone(now);
+                if (remainingWork(leastBusy, now) + remainingLast >= remainingWork(busiest, now)) {
+                    return;
+                }
+                ordersByTicket.remove(last.ticket);
+                busiest.remove(last.ticket);
+                append(last, leastBusy);
+            }
+        }
+
+        private OrderRankTree leastBusyLane(LocalDateTime now) {
+            OrderRankTree best = lanes[0];
+            long bestWork = remainingWork(best, now);
+            for (OrderRankTree lane : lanes) {
+                long work = remainingWork(lane, now);
+                if (work < bestWork) {
+                    best = lane;
+                    bestWork = work;
+                }
+            }
+            return best;
+        }
+
+        private OrderRankTree busiestLane(LocalDateTime now) {
+            OrderRankTree busiest = lanes[0];
+            long busiestWork = remainingWork(busiest, now);
+            for (OrderRankTree lane : lanes) {
+                long work = remainingWork(lane, now);
+                if (work > busiestWork) {
+                    busiest = lane;
+                    busiestWork = work;
+                }
+            }
+            return busiest;
+        }
+
+        private int laneNumber(OrderRankTree lane) {
+            for (int i = 0; i < lanes.length; i++) {
+                if (lanes[i] == lane) {
+                    return i + 1;
+                }
+            }
+            throw new IllegalStateException("Lane does not belong to this shop");
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.shop.process_order_service.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes queue changes (admission, position assignment, release, reordering) per shop for
+ * the rest of the current transaction. Transactions for different shops never wait on each other.
+ * <p>
+ * In {@link Mode#LOCAL} mode each shop has its own in-process lock, which is enough for a single
+ * instance. In {@link Mode#ADVISORY} mode a Postgres transaction-level advisory lock keyed by the
+ * shop id is taken instead, so that several instances sharing a database are serialized too.
+ * Either way the lock is held until the transaction completes. Callers that need several shops
+ * must lock them in ascending shop id order so that two transactions cannot deadlock.
+ */
+@Component
+public class ShopQueueLock {
+
+    public enum Mode {
+        LOCAL,
+        ADVISORY
+    }
+
+    private static final String ADVISORY_LOCK_SQL = "SELECT pg_advisory_xact_lock(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Mode mode;
+    private final ConcurrentMap<Long, ReentrantLock> locks = new ConcurrentHashMap<>();
+
+    public ShopQueueLock(JdbcTemplate jdbcTemplate, @Value("${app.queue.lock-mode:local}") Mode mode) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mode = mode;
+    }
+
+    public boolean isDistributed() {
+        return mode == Mode.ADVISORY;
+    }
+
+    /**
+     * Locks the shop's queue until the current transaction completes.
+     *
+     * @return {@code true} if the lock was taken by this call, {@code false} if the transaction already held it
+     */
+    public boolean lock(Long shopId) {
+        Set<Long> held = heldShops();
+        if (held.contains(shopId)) {
+            return false;
+        }
+        if (mode == Mode.ADVISORY) {
+            jdbcTemplate.query(ADVISORY_LOCK_SQL, (ResultSetExtractor<Void>) rs -> null, shopId);
+        } else {
+            locks.computeIfAbsent(shopId, id -> new ReentrantLock()).lock();
+        }
+        held.add(shopId);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Long> heldShops() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Locking a shop queue requires an active transaction");
+        }
+        Set<Long> held = (Set<Long>) TransactionSynchronizationManager.getResource(this);
+        if (held == null) {
+            Set<Long> newlyHeld = new LinkedHashSet<>();
+            TransactionSynchronizationManager.bindResource(this, newlyHeld);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    // Unlock only after every other callback has applied its queue changes.
+                    return Ordered.LOWEST_PRECEDENCE;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ShopQueueLock.this);
+                    if (mode == Mode.LOCAL) {
+                        newlyHeld.forEach(shopId -> locks.get(shopId).unlock());
+                    }
+                }
+            });
+            held = newlyHeld;
+        }
+        return held;
+    }
+}
@@ -0,0 +1,28 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:3
+
+-- Pooled id sequences used by Hibernate (see PooledSequenceGenerator).
+-- INCREMENT BY must match app.persistence.id-allocation-size; every nextval reserves
+-- the block (value - 50, value]. Each sequence starts one block above the current max id,
+-- and the BIGSERIAL column defaults are repointed so plain SQL inserts cannot collide.
+
+CREATE SEQUENCE IF NOT EXISTS customers_seq INCREMENT BY 50;
+SELECT setval('customers_seq', (SELECT COALESCE(MAX(id), 0) FROM customers) + 50, false);
+ALTER TABLE customers ALTER COLUMN id SET DEFAULT nextval('customers_seq');
+
+CREATE SEQUENCE IF NOT EXISTS coffee_shops_seq INCREMENT BY 50;
+SELECT setval('coffee_shops_seq', (SELECT COALESCE(MAX(id), 0) FROM coffee_shops) + 50, false);
+ALTER TABLE coffee_shops ALTER COLUMN id SET DEFAULT nextval('coffee_shops_seq');
+
+CREATE SEQUENCE IF NOT EXISTS menu_items_seq INCREMENT BY 50;
+SELECT setval('menu_items_seq', (SELECT COALESCE(MAX(id), 0) FROM menu_items) + 50, false);
+ALTER TABLE menu_items ALTER COLUMN id SET DEFAULT nextval('menu_items_seq');
+
+CREATE SEQUENCE IF NOT EXISTS orders_seq INCREMENT BY 50;
+SELECT setval('orders_seq', (SELECT COALESCE(MAX(id), 0) FROM orders) + 50, false);
+ALTER TABLE orders ALTER COLUMN id SET DEFAULT nextval('orders_seq');
+
+CREATE SEQUENCE IF NOT EXISTS order_items_seq INCREMENT BY 50;
+SELECT setval('order_items_seq', (SELECT COALESCE(MAX(id), 0) FROM order_items) + 50, false);
+ALTER TABLE order_items ALTER COLUMN id SET DEFAULT nextval('order_items_seq');
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:4
+
+-- Learned preparation time per menu item (see PrepTimeModel). Menu items belong to a
+-- single shop, so this is also per shop. Written periodically from memory, read at startup.
+
+CREATE TABLE IF NOT EXISTS prep_time_estimates (
+    menu_item_id BIGINT PRIMARY KEY,
+    average_seconds DOUBLE PRECISION NOT NULL,
+    sample_count BIGINT NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    CONSTRAINT fk_prep_time_estimates_menu_item FOREIGN KEY (menu_item_id) REFERENCES menu_items(id) ON DELETE CASCADE
+);
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:5
+
+-- Notifications written in the same transaction as the order change that caused them and
+-- delivered afterwards by NotificationDispatcher.
+
+CREATE TABLE IF NOT EXISTS notification_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    notification_type VARCHAR(50) NOT NULL,
+    order_id BIGINT NOT NULL,
+    recipient VARCHAR(20) NOT NULL,
+    message TEXT NOT NULL,
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INTEGER NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_at TIMESTAMP NOT NULL,
+    next_attempt_at TIMESTAMP NOT NULL,
+    sent_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_notification_outbox_pending
+    ON notification_outbox(next_attempt_at, id) WHERE status = 'PENDING';
@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:6
+
+-- Keyset pagination of a customer's order history on (created_at, id), newest first.
+CREATE INDEX IF NOT EXISTS idx_orders_customer_created
+    ON orders(customer_id, created_at DESC, id DESC);
+
+-- Items of a page of orders are loaded with one IN query on order_id.
+CREATE INDEX IF NOT EXISTS idx_order_items_order_id ON order_items(order_id);
+
+-- Superseded by idx_orders_customer_created, which has customer_id as its leading column.
+DROP INDEX IF EXISTS idx_orders_customer_id;
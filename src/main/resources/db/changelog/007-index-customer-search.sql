@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:7
+
+-- Prefix searches on the mobile number (mobile_number LIKE '0612%'). text_pattern_ops makes the
+-- index usable for LIKE regardless of the database collation.
+CREATE INDEX IF NOT EXISTS idx_customers_mobile_prefix ON customers(mobile_number text_pattern_ops);
+
+-- Loyalty score range filters of the customer listing.
+CREATE INDEX IF NOT EXISTS idx_customers_loyalty_score ON customers(loyalty_score, id);
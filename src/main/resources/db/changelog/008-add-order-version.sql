@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:8
+
+-- Optimistic locking of orders: every update checks and increments the version it read.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
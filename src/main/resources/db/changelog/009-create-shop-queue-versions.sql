@@ -0,0 +1,13 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:9
+
+-- Change marker per shop queue (see ShopQueueVersionStore). Every transaction that changes a
+-- shop's queue increments it under the shop's advisory lock, so an instance reloads its copy of
+-- the queue only when another instance has changed it.
+
+CREATE TABLE IF NOT EXISTS shop_queue_versions (
+    shop_id BIGINT PRIMARY KEY,
+    version BIGINT NOT NULL,
+    CONSTRAINT fk_shop_queue_versions_shop FOREIGN KEY (shop_id) REFERENCES coffee_shops(id) ON DELETE CASCADE
+);
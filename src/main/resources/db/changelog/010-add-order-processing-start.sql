@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset coffee-shop:10
+
+-- Set when an order moves to PROCESSING; measures preparation time and the work left on it.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS processing_started_at TIMESTAMP;
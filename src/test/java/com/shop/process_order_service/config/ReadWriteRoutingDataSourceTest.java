@@ -0,0 +1,80 @@
+package com.shop.process_order_service.config;
+
+import com.shop.process_order_service.config.ReadWriteRoutingDataSource.Route;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class ReadWriteRoutingDataSourceTest {
+
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() {
+        routingDataSource = new ReadWriteRoutingDataSource(mock(DataSource.class), mock(DataSource.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+        ReadYourWrites.endRequest();
+    }
+
+    @Test
+    void determineCurrentLookupKey_ReadOnlyTransactionUsesReplica() {
+        // Given
+        ReadYourWrites.beginRequest(false);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertEquals(Route.REPLICA, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_WriteTransactionUsesPrimaryAndPinsRequest() {
+        // Given
+        ReadYourWrites.beginRequest(false);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        // When
+        Route writeRoute = routingDataSource.determineCurrentLookupKey();
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        Route readRoute = routingDataSource.determineCurrentLookupKey();
+
+        // Then
+        assertEquals(Route.PRIMARY, writeRoute);
+        assertEquals(Route.PRIMARY, readRoute);
+    }
+
+    @Test
+    void determineCurrentLookupKey_PinnedRequestReadsFromPrimary() {
+        // Given
+        ReadYourWrites.beginRequest(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // When & Then
+        assertEquals(Route.PRIMARY, routingDataSource.determineCurrentLookupKey());
+    }
+
+    @Test
+    void determineCurrentLookupKey_WriteOutsideRequestDoesNotPin() {
+        // Given
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        routingDataSource.determineCurrentLookupKey();
+
+        // When
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        // Then
+        assertEquals(Route.REPLICA, routingDataSource.determineCurrentLookupKey());
+        assertFalse(ReadYourWrites.isPinned());
+    }
+}
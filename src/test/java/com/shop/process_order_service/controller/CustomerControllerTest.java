@@ -1,6 +1,7 @@
 package com.shop.process_order_service.controller;
 
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.shop.process_order_service.dto.OrderHistoryPage;
 import com.shop.process_order_service.dto.OrderResponseDto;
 import com.shop.process_order_service.dto.OrderItemResponseDto;
 import com.shop.process_order_service.dto.StandardApiResponse;
@@ -62,12 +63,12 @@ class CustomerControllerTest {
         List<OrderResponseDto> mockOrders = createMockOrders();
         String expectedPath = "/customers/1/history";
 
-        when(orderService.getCustomerOrders(customerId)).thenReturn(mockOrders);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenReturn(page(mockOrders));
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
         ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> response =
-                customerController.getCustomerOrderHistory(customerId, httpServletRequest);
+                customerController.getCustomerOrderHistory(customerId, null, 20, httpServletRequest);
 
         // Assert
         assertNotNull(response);
@@ -80,7 +81,7 @@ class CustomerControllerTest {
         assertEquals("Retrieved 3 orders for customer", body.getMessage());
         assertEquals(expectedPath, body.getPath());
 
-        verify(orderService).getCustomerOrders(customerId);
+        verify(orderService).getCustomerOrders(customerId, null, 20);
         verify(httpServletRequest).getRequestURI();
     }
 
@@ -91,12 +92,12 @@ class CustomerControllerTest {
         List<OrderResponseDto> emptyOrders = Collections.emptyList();
         String expectedPath = "/customers/2/history";
 
-        when(orderService.getCustomerOrders(customerId)).thenReturn(emptyOrders);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenReturn(page(emptyOrders));
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
         ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> response =
-                customerController.getCustomerOrderHistory(customerId, httpServletRequest);
+                customerController.getCustomerOrderHistory(customerId, null, 20, httpServletRequest);
 
         // Assert
         assertNotNull(response);
@@ -109,7 +110,7 @@ class CustomerControllerTest {
         assertEquals("Retrieved 0 orders for customer", body.getMessage());
         assertEquals(expectedPath, body.getPath());
 
-        verify(orderService).getCustomerOrders(customerId);
+        verify(orderService).getCustomerOrders(customerId, null, 20);
         verify(httpServletRequest).getRequestURI();
     }
 
@@ -120,12 +121,12 @@ class CustomerControllerTest {
         String expectedPath = "/customers/999/history";
         CustomerNotFoundException exception = new CustomerNotFoundException("Customer not found");
 
-        when(orderService.getCustomerOrders(customerId)).thenThrow(exception);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenThrow(exception);
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
         ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> response =
-                customerController.getCustomerOrderHistory(customerId, httpServletRequest);
+                customerController.getCustomerOrderHistory(customerId, null, 20, httpServletRequest);
 
         // Assert
         assertNotNull(response);
@@ -139,7 +140,7 @@ class CustomerControllerTest {
         assertEquals("CUSTOMER_NOT_FOUND", body.getErrorCode());
         assertEquals(expectedPath, body.getPath());
 
-        verify(orderService).getCustomerOrders(customerId);
+        verify(orderService).getCustomerOrders(customerId, null, 20);
         verify(httpServletRequest).getRequestURI();
     }
 
@@ -149,7 +150,7 @@ class CustomerControllerTest {
         Long customerId = 1L;
         List<OrderResponseDto> mockOrders = createMockOrders();
 
-        when(orderService.getCustomerOrders(customerId)).thenReturn(mockOrders);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenReturn(page(mockOrders));
 
         mockMvc.perform(get("/customers/{id}/history", customerId)
                         .contentType(MediaType.APPLICATION_JSON))
@@ -168,7 +169,7 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.data[1].orderId").value(2))
                 .andExpect(jsonPath("$.data[2].orderId").value(3));
 
-        verify(orderService).getCustomerOrders(customerId);
+        verify(orderService).getCustomerOrders(customerId, null, 20);
     }
 
     @Test
@@ -176,7 +177,7 @@ class CustomerControllerTest {
         Long customerId = 999L;
         CustomerNotFoundException exception = new CustomerNotFoundException("Customer not found");
 
-        when(orderService.getCustomerOrders(customerId)).thenThrow(exception);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenThrow(exception);
 
         mockMvc.perform(get("/customers/{id}/history", customerId)
                         .contentType(MediaType.APPLICATION_JSON))
@@ -186,7 +187,7 @@ class CustomerControllerTest {
                 .andExpect(jsonPath("$.errorCode").value("CUSTOMER_NOT_FOUND"))
                 .andExpect(jsonPath("$.data").doesNotExist());
 
-        verify(orderService).getCustomerOrders(customerId);
+        verify(orderService).getCustomerOrders(customerId, null, 20);
     }
 
     @Test
@@ -196,14 +197,14 @@ class CustomerControllerTest {
         List<OrderResponseDto> mockOrders = Arrays.asList(createSingleOrder());
         String expectedPath = "/customers/1/history";
 
-        when(orderService.getCustomerOrders(customerId)).thenReturn(mockOrders);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenReturn(page(mockOrders));
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
-        customerController.getCustomerOrderHistory(customerId, httpServletRequest);
+        customerController.getCustomerOrderHistory(customerId, null, 20, httpServletRequest);
 
         // Assert - Verify all method calls
-        verify(orderService, times(1)).getCustomerOrders(customerId);
+        verify(orderService, times(1)).getCustomerOrders(customerId, null, 20);
         verify(httpServletRequest, times(1)).getRequestURI();
         verifyNoMoreInteractions(orderService, httpServletRequest);
     }
@@ -215,12 +216,12 @@ class CustomerControllerTest {
         List<OrderResponseDto> mockOrders = Collections.singletonList(createSingleOrder());
         String expectedPath = "/customers/" + largeCustomerId + "/history";
 
-        when(orderService.getCustomerOrders(largeCustomerId)).thenReturn(mockOrders);
+        when(orderService.getCustomerOrders(largeCustomerId, null, 20)).thenReturn(page(mockOrders));
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
         ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> response =
-                customerController.getCustomerOrderHistory(largeCustomerId, httpServletRequest);
+                customerController.getCustomerOrderHistory(largeCustomerId, null, 20, httpServletRequest);
 
         // Assert
         assertNotNull(response);
@@ -235,12 +236,12 @@ class CustomerControllerTest {
         List<OrderResponseDto> mockOrders = createMockOrders();
         String expectedPath = "/customers/1/history";
 
-        when(orderService.getCustomerOrders(customerId)).thenReturn(mockOrders);
+        when(orderService.getCustomerOrders(customerId, null, 20)).thenReturn(page(mockOrders));
         when(httpServletRequest.getRequestURI()).thenReturn(expectedPath);
 
         // Act
         ResponseEntity<StandardApiResponse<List<OrderResponseDto>>> response =
-                customerController.getCustomerOrderHistory(customerId, httpServletRequest);
+                customerController.getCustomerOrderHistory(customerId, null, 20, httpServletRequest);
 
         // Assert - Validate complete response structure
         StandardApiResponse<List<OrderResponseDto>> body = response.getBody();
@@ -286,4 +287,8 @@ class CustomerControllerTest {
 
         return Arrays.asList(item1, item2);
     }
+
+    private static OrderHistoryPage page(List<OrderResponseDto> orders) {
+        return OrderHistoryPage.builder().orders(orders).build();
+    }
 }
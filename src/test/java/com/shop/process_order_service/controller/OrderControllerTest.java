@@ -2,8 +2,14 @@ package com.shop.process_order_service.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shop.process_order_service.dto.*;
+import com.shop.process_order_service.entity.Order;
 import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.service.BatchOrderService;
+import com.shop.process_order_service.service.OrderETags;
 import com.shop.process_order_service.service.OrderService;
+import com.shop.process_order_service.service.QueuePositionStream;
+import com.shop.process_order_service.service.ShopLocator;
+import com.shop.process_order_service.exception.QueueFullException;
 
 import lombok.Data;
 import lombok.Builder;
@@ -15,13 +21,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
@@ -42,6 +51,18 @@ class OrderControllerTest {
     @MockBean
     private OrderService orderService;
 
+    @MockBean
+    private BatchOrderService batchOrderService;
+
+    @MockBean
+    private QueuePositionStream queuePositionStream;
+
+    @MockBean
+    private OrderETags orderETags;
+
+    @MockBean
+    private ShopLocator shopLocator;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -188,6 +209,76 @@ class OrderControllerTest {
         verify(orderService, times(1)).processOrder(any(OrderRequestDto.class));
     }
 
+    @Test
+    void processOrders_ValidBatch_ShouldReturnPerOrderResults() throws Exception {
+        // Given
+        BatchOrderRequestDto batchRequest = new BatchOrderRequestDto();
+        batchRequest.setOrders(Arrays.asList(validOrderRequest, validOrderRequest));
+
+        BatchOrderResponseDto batchResponse = BatchOrderResponseDto.builder()
+                .accepted(1)
+                .rejected(1)
+                .results(Arrays.asList(
+                        BatchOrderResultDto.builder().index(0).success(true).order(mockOrderResponse).build(),
+                        BatchOrderResultDto.builder().index(1).success(false)
+                                .errorCode("QUEUE_FULL").message("Queue is full for shop: Coffee Central").build()))
+                .build();
+        when(batchOrderService.processOrders(anyList())).thenReturn(batchResponse);
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.message").value("Batch processed: 1 accepted, 1 rejected"))
+                .andExpect(jsonPath("$.data.results[0].order.orderId").value(1L))
+                .andExpect(jsonPath("$.data.results[1].success").value(false))
+                .andExpect(jsonPath("$.data.results[1].errorCode").value("QUEUE_FULL"))
+                .andExpect(jsonPath("$.path").value("/api/v1/orders/batch"));
+
+        verify(batchOrderService, times(1)).processOrders(anyList());
+    }
+
+    @Test
+    void processOrders_EmptyBatch_ShouldReturnBadRequest() throws Exception {
+        // Given
+        BatchOrderRequestDto batchRequest = new BatchOrderRequestDto();
+        batchRequest.setOrders(Collections.emptyList());
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/orders/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batchRequest)))
+                .andExpect(status().isBadRequest());
+
+        verify(batchOrderService, never()).processOrders(anyList());
+    }
+
+    @Test
+    void processOrder_QueueFull_ShouldReturnAlternativesWithServiceUnavailable() throws Exception {
+        // Given
+        when(orderService.processOrder(any(OrderRequestDto.class)))
+                .thenThrow(new QueueFullException("Queue is full for shop: Coffee Central. Please try again later.", 1L));
+        when(shopLocator.findAlternatives(1L)).thenReturn(List.of(NearbyShopDto.builder()
+                .shopId(2L)
+                .name("Coffee Corner")
+                .distanceKm(0.8)
+                .travelMinutes(10)
+                .queueLength(2)
+                .estimatedWaitMinutes(6)
+                .build()));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/orders")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(validOrderRequest)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.errorCode").value("QUEUE_FULL"))
+                .andExpect(jsonPath("$.data[0].shopId").value(2L))
+                .andExpect(jsonPath("$.data[0].estimatedWaitMinutes").value(6));
+    }
+
     @Test
     void getOrder_ValidOrderId_ShouldReturnOrderDetails() throws Exception {
         // Given
@@ -206,6 +297,64 @@ class OrderControllerTest {
         verify(orderService, times(1)).getOrder(1L);
     }
 
+    @Test
+    void getOrder_MatchingETag_ShouldReturnNotModifiedWithoutLoadingOrder() throws Exception {
+        // Given
+        when(orderETags.unchangedOrder(1L, "\"o1-3\"")).thenReturn(Optional.of("\"o1-3\""));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/1").header("If-None-Match", "\"o1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"o1-3\""))
+                .andExpect(content().string(""));
+
+        verify(orderService, never()).getOrder(anyLong());
+    }
+
+    @Test
+    void getOrder_StaleETag_ShouldReturnOrderTaggedWithItsOwnVersion() throws Exception {
+        // Given: the latest version is 4, but the body was read from a replica still at version 3
+        mockOrderResponse.setVersion(3L);
+        when(orderETags.unchangedOrder(eq(1L), any())).thenReturn(Optional.empty());
+        when(orderETags.forOrder(1L, 3L)).thenReturn("\"o1-3\"");
+        when(orderService.getOrder(1L)).thenReturn(mockOrderResponse);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/1").header("If-None-Match", "\"o1-2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"o1-3\""))
+                .andExpect(jsonPath("$.data.orderId").value(1L))
+                .andExpect(jsonPath("$.data.version").doesNotExist());
+    }
+
+    @Test
+    void getOrder_ETagMatchingLoadedBody_ShouldReturnNotModified() throws Exception {
+        // Given
+        mockOrderResponse.setVersion(3L);
+        when(orderETags.unchangedOrder(eq(1L), any())).thenReturn(Optional.empty());
+        when(orderETags.forOrder(1L, 3L)).thenReturn("\"o1-3\"");
+        when(orderService.getOrder(1L)).thenReturn(mockOrderResponse);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/1").header("If-None-Match", "\"o1-3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void getOrderQueueStatus_MatchingETag_ShouldReturnNotModified() throws Exception {
+        // Given
+        when(orderETags.forQueueStatus(1L, 1L)).thenReturn(Optional.of("\"q1-42\""));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/1/queue-status")
+                        .param("customerId", "1")
+                        .header("If-None-Match", "\"q1-42\""))
+                .andExpect(status().isNotModified());
+
+        verify(orderService, never()).getQueuePosition(anyLong(), anyLong());
+    }
+
     @Test
     void getOrder_ServiceException_ShouldPropagateException() throws Exception {
         // Given
@@ -222,7 +371,7 @@ class OrderControllerTest {
     void getCustomerOrders_ValidCustomerId_ShouldReturnOrdersList() throws Exception {
         // Given
         List<OrderResponseDto> orders = Arrays.asList(mockOrderResponse);
-        when(orderService.getCustomerOrders(1L)).thenReturn(orders);
+        when(orderService.getCustomerOrders(1L, null, 20)).thenReturn(page(orders));
 
         // When & Then
         mockMvc.perform(get("/api/v1/orders/customer/1"))
@@ -234,13 +383,13 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.data[0].customerName").value("John Doe"))
                 .andExpect(jsonPath("$.path").value("/api/v1/orders/customer/1"));
 
-        verify(orderService, times(1)).getCustomerOrders(1L);
+        verify(orderService, times(1)).getCustomerOrders(1L, null, 20);
     }
 
     @Test
     void getCustomerOrders_ValidCustomerId_EmptyList_ShouldReturnEmptyList() throws Exception {
         // Given
-        when(orderService.getCustomerOrders(1L)).thenReturn(Collections.emptyList());
+        when(orderService.getCustomerOrders(1L, null, 20)).thenReturn(page(Collections.emptyList()));
 
         // When & Then
         mockMvc.perform(get("/api/v1/orders/customer/1"))
@@ -251,19 +400,35 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.data").isEmpty())
                 .andExpect(jsonPath("$.path").value("/api/v1/orders/customer/1"));
 
-        verify(orderService, times(1)).getCustomerOrders(1L);
+        verify(orderService, times(1)).getCustomerOrders(1L, null, 20);
+    }
+
+    @Test
+    void getCustomerOrders_WithCursorAndLimit_ShouldReturnNextCursor() throws Exception {
+        // Given
+        OrderHistoryPage page = OrderHistoryPage.builder()
+                .orders(List.of(mockOrderResponse))
+                .nextCursor("next")
+                .build();
+        when(orderService.getCustomerOrders(1L, "abc", 1)).thenReturn(page);
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/customer/1").param("cursor", "abc").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].orderId").value(1L))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
     }
 
     @Test
     void getCustomerOrders_ServiceException_ShouldPropagateException() throws Exception {
         // Given
-        when(orderService.getCustomerOrders(1L)).thenThrow(new RuntimeException("Database error"));
+        when(orderService.getCustomerOrders(1L, null, 20)).thenThrow(new RuntimeException("Database error"));
 
         // When & Then
         mockMvc.perform(get("/api/v1/orders/customer/1"))
                 .andExpect(status().isInternalServerError());
 
-        verify(orderService, times(1)).getCustomerOrders(1L);
+        verify(orderService, times(1)).getCustomerOrders(1L, null, 20);
     }
 
     @Test
@@ -287,6 +452,20 @@ class OrderControllerTest {
         verify(orderService, times(1)).getQueuePosition(1L, 1L);
     }
 
+    @Test
+    void streamQueueStatus_ValidParameters_ShouldSubscribeToQueueUpdates() throws Exception {
+        // Given
+        when(orderService.getQueuePosition(1L, 1L)).thenReturn(mockQueuePosition);
+        when(queuePositionStream.subscribe(1L, mockQueuePosition)).thenReturn(new SseEmitter());
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/orders/1/queue-status/stream")
+                        .param("customerId", "1"))
+                .andExpect(request().asyncStarted());
+
+        verify(queuePositionStream, times(1)).subscribe(1L, mockQueuePosition);
+    }
+
     @Test
     void getQueuePosition_MissingCustomerId_ShouldReturnBadRequest() throws Exception {
         // When & Then
@@ -347,4 +526,21 @@ class OrderControllerTest {
 
         verify(orderService, times(1)).cancelOrder(1L, 1L);
     }
+
+    @Test
+    void cancelOrder_ConcurrentModification_ShouldReturnConflict() throws Exception {
+        // Given
+        doThrow(new ObjectOptimisticLockingFailureException(Order.class, 1L)).when(orderService).cancelOrder(1L, 1L);
+
+        // When & Then
+        mockMvc.perform(delete("/api/v1/orders/1")
+                        .param("customerId", "1"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.success").value(false))
+                .andExpect(jsonPath("$.errorCode").value("CONCURRENT_MODIFICATION"));
+    }
+
+    private static OrderHistoryPage page(List<OrderResponseDto> orders) {
+        return OrderHistoryPage.builder().orders(orders).build();
+    }
 }
@@ -0,0 +1,123 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ActiveOrderCounterTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private ShopQueueLock shopQueueLock;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ActiveOrderCounter activeOrderCounter;
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void tryAcquire_AdmitsUntilMaxQueueSize() {
+        // Given
+        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(1);
+
+        // When & Then
+        assertEquals(2, activeOrderCounter.tryAcquire(1L, 3));
+        assertEquals(3, activeOrderCounter.tryAcquire(1L, 3));
+        assertEquals(-1, activeOrderCounter.tryAcquire(1L, 3));
+        assertEquals(3, activeOrderCounter.get(1L));
+        verify(orderRepository, times(1)).countActiveOrdersByShop(1L);
+    }
+
+    @Test
+    void tryAcquire_IsUndoneWhenTransactionRollsBack() {
+        // Given
+        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(0);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        activeOrderCounter.tryAcquire(1L, 10);
+        assertEquals(1, activeOrderCounter.get(1L));
+        completeTransaction(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+        // Then
+        assertEquals(0, activeOrderCounter.get(1L));
+    }
+
+    @Test
+    void release_AppliesOnlyAfterCommit() {
+        // Given
+        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(2);
+        TransactionSynchronizationManager.initSynchronization();
+
+        // When
+        activeOrderCounter.release(1L);
+        assertEquals(2, activeOrderCounter.get(1L));
+        completeTransaction(TransactionSynchronization.STATUS_COMMITTED);
+
+        // Then
+        assertEquals(1, activeOrderCounter.get(1L));
+    }
+
+    @Test
+    void reconcile_ResetsCountToDatabaseValueUnderShopQueueLock() {
+        // Given
+        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5, 3);
+        activeOrderCounter.get(1L);
+
+        // When
+        activeOrderCounter.reconcile();
+
+        // Then
+        assertEquals(3, activeOrderCounter.get(1L));
+        InOrder inOrder = inOrder(shopQueueLock, orderRepository, transactionManager);
+        inOrder.verify(shopQueueLock).lock(1L);
+        inOrder.verify(orderRepository).countActiveOrdersByShop(1L);
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    void reconcile_KeepsPlacesOfAdmissionsNotYetCommitted() {
+        // Given
+        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(2);
+        TransactionSynchronizationManager.initSynchronization();
+        activeOrderCounter.tryAcquire(1L, 10);
+        List<TransactionSynchronization> admission = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // When
+        activeOrderCounter.reconcile();
+
+        // Then
+        assertEquals(3, activeOrderCounter.get(1L));
+        admission.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        assertEquals(2, activeOrderCounter.get(1L));
+    }
+
+    private static void completeTransaction(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
@@ -0,0 +1,165 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.*;
+import com.shop.process_order_service.entity.*;
+import com.shop.process_order_service.exception.QueueFullException;
+import com.shop.process_order_service.mapper.OrderMapper;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import com.shop.process_order_service.repository.CustomerRepository;
+import com.shop.process_order_service.repository.OrderBatchWriter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchOrderServiceTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+    @Mock
+    private CoffeeShopRepository coffeeShopRepository;
+    @Mock
+    private OrderBatchWriter orderBatchWriter;
+    @Mock
+    private MenuCatalog menuCatalog;
+    @Mock
+    private QueueService queueService;
+    @Mock
+    private NotificationService notificationService;
+    @Mock
+    private OrderMapper orderMapper;
+
+    @InjectMocks
+    private BatchOrderService batchOrderService;
+
+    private Customer testCustomer;
+    private CoffeeShop testCoffeeShop;
+    private MenuItem testMenuItem;
+
+    @BeforeEach
+    void setUp() {
+        testCustomer = new Customer();
+        testCustomer.setId(1L);
+        testCustomer.setName("John Doe");
+        testCustomer.setMobileNumber("1234567890");
+
+        testCoffeeShop = new CoffeeShop();
+        testCoffeeShop.setId(1L);
+        testCoffeeShop.setName("Test Coffee Shop");
+        testCoffeeShop.setMaxQueueSize(2);
+
+        testMenuItem = new MenuItem();
+        testMenuItem.setId(1L);
+        testMenuItem.setName("Cappuccino");
+        testMenuItem.setPrice(new BigDecimal("4.50"));
+        testMenuItem.setAvailable(true);
+    }
+
+    @Test
+    void processOrders_RejectsOrdersBeyondQueueCapacityWithoutFailingBatch() {
+        // Given
+        List<OrderRequestDto> requests = List.of(request(1L, 1L), request(1L, 1L), request(1L, 1L));
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(testCustomer));
+        when(coffeeShopRepository.findAllById(anySet())).thenReturn(List.of(testCoffeeShop));
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem));
+        when(queueService.admitOrder(testCoffeeShop))
+                .thenReturn(1)
+                .thenReturn(2)
+                .thenThrow(new QueueFullException("Queue is full for shop: Test Coffee Shop. Please try again later."));
+        when(orderMapper.toItemEntity(any(OrderItemDto.class))).thenAnswer(invocation -> new OrderItem());
+        when(orderMapper.toDto(any(Order.class))).thenReturn(OrderResponseDto.builder().orderId(1L).build());
+
+        // When
+        BatchOrderResponseDto result = batchOrderService.processOrders(requests);
+
+        // Then
+        assertEquals(2, result.getAccepted());
+        assertEquals(1, result.getRejected());
+        assertTrue(result.getResults().get(0).isSuccess());
+        assertTrue(result.getResults().get(1).isSuccess());
+        assertFalse(result.getResults().get(2).isSuccess());
+        assertEquals("QUEUE_FULL", result.getResults().get(2).getErrorCode());
+        verify(notificationService).sendOrderConfirmations(argThat(orders -> orders.size() == 2));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Order>> written = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertOrders(written.capture());
+        assertEquals(2, written.getValue().size());
+        assertEquals(1, written.getValue().get(0).getQueuePosition());
+        assertEquals(2, written.getValue().get(1).getQueuePosition());
+        assertEquals(new BigDecimal("9.00"), written.getValue().get(0).getTotalAmount());
+        verify(orderBatchWriter).incrementLoyaltyScores(Map.of(1L, 2));
+        verify(queueService, times(2)).enqueueOrder(any(Order.class));
+    }
+
+    @Test
+    void processOrders_ReportsUnknownCustomerAndMenuItemPerOrder() {
+        // Given
+        OrderRequestDto unknownCustomer = request(99L, 1L);
+        OrderRequestDto unknownItem = request(1L, 42L);
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(testCustomer));
+        when(coffeeShopRepository.findAllById(anySet())).thenReturn(List.of(testCoffeeShop));
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem));
+
+        // When
+        BatchOrderResponseDto result = batchOrderService.processOrders(List.of(unknownCustomer, unknownItem));
+
+        // Then
+        assertEquals(0, result.getAccepted());
+        assertEquals(2, result.getRejected());
+        assertEquals("CUSTOMER_NOT_FOUND", result.getResults().get(0).getErrorCode());
+        assertEquals("INVALID_ORDER", result.getResults().get(1).getErrorCode());
+        assertEquals("Menu item not found: 42", result.getResults().get(1).getMessage());
+        verify(orderBatchWriter).insertOrders(List.of());
+        verify(queueService, never()).admitOrder(any(CoffeeShop.class));
+        verify(notificationService).sendOrderConfirmations(List.of());
+    }
+
+    @Test
+    void processOrders_CountsEarlierOrdersOfSameShopInWaitTime() {
+        // Given
+        List<OrderRequestDto> requests = List.of(request(1L, 1L), request(1L, 1L));
+        when(customerRepository.findAllById(anySet())).thenReturn(List.of(testCustomer));
+        when(coffeeShopRepository.findAllById(anySet())).thenReturn(List.of(testCoffeeShop));
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem));
+        when(queueService.admitOrder(testCoffeeShop)).thenReturn(1).thenReturn(2);
+        when(queueService.estimatePreparationSeconds(any(Order.class))).thenReturn(300);
+        when(queueService.calculateEstimatedWaitTime(any(Order.class), eq(0L))).thenReturn(5);
+        when(queueService.calculateEstimatedWaitTime(any(Order.class), eq(300L))).thenReturn(10);
+        when(orderMapper.toItemEntity(any(OrderItemDto.class))).thenAnswer(invocation -> new OrderItem());
+
+        // When
+        batchOrderService.processOrders(requests);
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Order>> written = ArgumentCaptor.forClass(List.class);
+        verify(orderBatchWriter).insertOrders(written.capture());
+        assertEquals(5, written.getValue().get(0).getEstimatedWaitTime());
+        assertEquals(10, written.getValue().get(1).getEstimatedWaitTime());
+    }
+
+    private OrderRequestDto request(Long customerId, Long menuItemId) {
+        OrderItemDto item = new OrderItemDto();
+        item.setMenuItemId(menuItemId);
+        item.setQuantity(2);
+
+        OrderRequestDto request = new OrderRequestDto();
+        request.setCustomerId(customerId);
+        request.setCoffeeShopId(1L);
+        request.setItems(List.of(item));
+        return request;
+    }
+}
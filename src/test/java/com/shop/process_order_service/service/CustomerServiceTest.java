@@ -0,0 +1,105 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.CustomerPage;
+import com.shop.process_order_service.dto.CustomerResponseDto;
+import com.shop.process_order_service.dto.CustomerSearchCriteria;
+import com.shop.process_order_service.dto.CustomerView;
+import com.shop.process_order_service.exception.InvalidCursorException;
+import com.shop.process_order_service.mapper.CustomerMapper;
+import com.shop.process_order_service.repository.CustomerSearchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CustomerServiceTest {
+
+    @Mock
+    private CustomerSearchRepository customerSearchRepository;
+    @Mock
+    private CustomerMapper customerMapper;
+
+    @InjectMocks
+    private CustomerService customerService;
+
+    private CustomerSearchCriteria criteria;
+
+    @BeforeEach
+    void setUp() {
+        criteria = CustomerSearchCriteria.builder()
+                .mobilePrefix("0612")
+                .minLoyaltyScore(10)
+                .build();
+        lenient().when(customerMapper.toDto(any(CustomerView.class))).thenAnswer(invocation -> {
+            CustomerView view = invocation.getArgument(0);
+            CustomerResponseDto dto = new CustomerResponseDto();
+            dto.setId(view.id().intValue());
+            dto.setPhone(view.mobileNumber());
+            return dto;
+        });
+    }
+
+    @Test
+    void getCustomers_FullPage_ReturnsCursorOfLastCustomer() {
+        // Given
+        when(customerSearchRepository.findPage(criteria, null, 3))
+                .thenReturn(List.of(customer(4L), customer(7L), customer(9L)));
+
+        // When
+        CustomerPage page = customerService.getCustomers(criteria, null, 2);
+
+        // Then
+        assertEquals(2, page.getCustomers().size());
+        assertEquals(7, page.getCustomers().get(1).getId());
+        assertEquals("7", page.getNextCursor());
+    }
+
+    @Test
+    void getCustomers_LastPage_ContinuesAfterCursorWithoutNextCursor() {
+        // Given
+        when(customerSearchRepository.findPage(criteria, 7L, 3)).thenReturn(List.of(customer(9L)));
+
+        // When
+        CustomerPage page = customerService.getCustomers(criteria, "7", 2);
+
+        // Then
+        assertEquals(1, page.getCustomers().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getCustomers_InvalidCursor() {
+        // When & Then
+        assertThrows(InvalidCursorException.class, () -> customerService.getCustomers(criteria, "abc", 2));
+        verifyNoInteractions(customerSearchRepository);
+    }
+
+    @Test
+    void exportCustomers_PassesEveryCustomerToSink() {
+        // Given
+        when(customerSearchRepository.stream(criteria)).thenReturn(Stream.of(customer(1L), customer(2L)));
+        List<CustomerResponseDto> exported = new ArrayList<>();
+
+        // When
+        long count = customerService.exportCustomers(criteria, exported::add);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of(1, 2), exported.stream().map(CustomerResponseDto::getId).toList());
+    }
+
+    private static CustomerView customer(Long id) {
+        return new CustomerView(id, "Customer " + id, "0612" + id, null, null);
+    }
+}
@@ -0,0 +1,55 @@
+package com.shop.process_order_service.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private final HashedTimingWheel timingWheel =
+            new HashedTimingWheel("test-wheel", Duration.ofMillis(5), 8, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        timingWheel.close();
+    }
+
+    @Test
+    void schedule_RunsTasksInDeadlineOrderIncludingThoseBeyondOneTurn() throws Exception {
+        // Given: 8 ticks of 5 ms per turn, so 100 ms is several turns away
+        List<String> fired = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+
+        // When
+        timingWheel.schedule(() -> { fired.add("late"); done.countDown(); }, Duration.ofMillis(100));
+        timingWheel.schedule(() -> { fired.add("soon"); done.countDown(); }, Duration.ofMillis(10));
+        timingWheel.schedule(() -> { fired.add("middle"); done.countDown(); }, Duration.ofMillis(50));
+
+        // Then
+        assertEquals(3, timingWheel.pending());
+        assertTrue(done.await(2, TimeUnit.SECONDS));
+        assertEquals(List.of("soon", "middle", "late"), fired);
+        assertEquals(0, timingWheel.pending());
+    }
+
+    @Test
+    void schedule_DoesNotRunTaskBeforeItsDelay() throws Exception {
+        // Given
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // When
+        timingWheel.schedule(fired::countDown, Duration.ofMillis(60));
+
+        // Then
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(60));
+    }
+}
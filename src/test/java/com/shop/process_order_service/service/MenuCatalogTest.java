@@ -0,0 +1,115 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.MenuItem;
+import com.shop.process_order_service.repository.MenuItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MenuCatalogTest {
+
+    @Mock
+    private MenuItemRepository menuItemRepository;
+
+    private MenuCatalog menuCatalog;
+
+    private MenuItem latte;
+
+    @BeforeEach
+    void setUp() {
+        menuCatalog = new MenuCatalog(menuItemRepository, 60_000);
+        latte = new MenuItem();
+        latte.setId(1L);
+        latte.setName("Latte");
+        latte.setPrice(new BigDecimal("600.00"));
+        latte.setAvailable(true);
+    }
+
+    @Test
+    void getMenu_LoadsSnapshotOncePerShop() {
+        // Given
+        when(menuItemRepository.findByCoffeeShopId(1L)).thenReturn(List.of(latte));
+
+        // When
+        Map<Long, MenuItem> first = menuCatalog.getMenu(1L);
+        Map<Long, MenuItem> second = menuCatalog.getMenu(1L);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(latte, first.get(1L));
+        verify(menuItemRepository, times(1)).findByCoffeeShopId(1L);
+    }
+
+    @Test
+    void getMenu_SnapshotIsImmutable() {
+        // Given
+        when(menuItemRepository.findByCoffeeShopId(1L)).thenReturn(List.of(latte));
+
+        // When
+        Map<Long, MenuItem> menu = menuCatalog.getMenu(1L);
+
+        // Then
+        assertThrows(UnsupportedOperationException.class, () -> menu.put(2L, new MenuItem()));
+    }
+
+    @Test
+    void refresh_SwapsSnapshot() {
+        // Given
+        MenuItem updatedLatte = new MenuItem();
+        updatedLatte.setId(1L);
+        updatedLatte.setName("Latte");
+        updatedLatte.setPrice(new BigDecimal("650.00"));
+        updatedLatte.setAvailable(false);
+        when(menuItemRepository.findByCoffeeShopId(1L))
+                .thenReturn(List.of(latte))
+                .thenReturn(List.of(updatedLatte));
+        Map<Long, MenuItem> before = menuCatalog.getMenu(1L);
+
+        // When
+        menuCatalog.refresh(1L);
+
+        // Then
+        Map<Long, MenuItem> after = menuCatalog.getMenu(1L);
+        assertEquals(new BigDecimal("600.00"), before.get(1L).getPrice());
+        assertEquals(new BigDecimal("650.00"), after.get(1L).getPrice());
+        assertFalse(after.get(1L).getAvailable());
+    }
+
+    @Test
+    void getMenu_ReloadsSnapshotOlderThanTtl() {
+        // Given: changes made by another instance are only seen through the TTL
+        menuCatalog = new MenuCatalog(menuItemRepository, 0);
+        when(menuItemRepository.findByCoffeeShopId(1L)).thenReturn(List.of(latte));
+
+        // When
+        menuCatalog.getMenu(1L);
+        menuCatalog.getMenu(1L);
+
+        // Then
+        verify(menuItemRepository, times(2)).findByCoffeeShopId(1L);
+    }
+
+    @Test
+    void evict_ReloadsOnNextRead() {
+        // Given
+        when(menuItemRepository.findByCoffeeShopId(1L)).thenReturn(List.of(latte));
+        menuCatalog.getMenu(1L);
+
+        // When
+        menuCatalog.evict(1L);
+        menuCatalog.getMenu(1L);
+
+        // Then
+        verify(menuItemRepository, times(2)).findByCoffeeShopId(1L);
+    }
+}
@@ -0,0 +1,239 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NotificationMessage;
+import com.shop.process_order_service.entity.NotificationType;
+import com.shop.process_order_service.repository.NotificationOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class NotificationDispatcherTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    @Mock
+    private NotificationOutboxRepository outboxRepository;
+    @Mock
+    private NotificationChannel notificationChannel;
+    @Mock
+    private NotificationExecutors notificationExecutors;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private NotificationDispatcher notificationDispatcher;
+
+    @BeforeEach
+    void setUp() {
+        lenient().doAnswer(invocation -> {
+            CompletableFuture.runAsync(invocation.<NotificationTask>getArgument(1));
+            return null;
+        }).when(notificationExecutors).execute(any(), any());
+        notificationDispatcher = new NotificationDispatcher(outboxRepository, notificationChannel, notificationExecutors,
+                transactionManager, meterRegistry, BATCH_SIZE, 3, 1000, 60_000, 60_000, 2000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        notificationDispatcher.shutdown();
+    }
+
+    @Test
+    void dispatch_DeliversFullBatchesUntilOutboxIsDrained() {
+        // Given
+        List<NotificationMessage> fullBatch = messages(1, 3, 0);
+        List<NotificationMessage> lastBatch = messages(4, 4, 0);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(fullBatch, lastBatch);
+        when(notificationChannel.deliver(anyList())).thenReturn(Map.of());
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(notificationChannel).deliver(fullBatch);
+        verify(notificationChannel).deliver(lastBatch);
+        verify(outboxRepository).markSent(fullBatch);
+        verify(outboxRepository).markSent(lastBatch);
+        verify(outboxRepository, times(2)).claimPending(eq(BATCH_SIZE), any());
+        // one claim and one outcome transaction per batch, none spanning a delivery
+        verify(transactionManager, times(4)).commit(any());
+    }
+
+    @Test
+    void dispatch_ReschedulesFailedDeliveriesWithBackoff() {
+        // Given
+        List<NotificationMessage> batch = messages(1, 2, 1);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(notificationChannel.deliver(batch)).thenReturn(Map.of(2L, "gateway timeout"));
+        LocalDateTime before = LocalDateTime.now();
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(outboxRepository).markSent(List.of(batch.get(0)));
+        verify(outboxRepository).markFailed(eq(batch.get(1)),
+                argThat(next -> !next.isBefore(before.plusSeconds(62))), eq("gateway timeout"));
+        assertEquals(1, notificationDispatcher.retryQueueDepth());
+        assertEquals(1.0, meterRegistry.get("notification.retry.queue.depth").gauge().value());
+    }
+
+    @Test
+    void dispatch_RetriesFailedDeliveryFromTimingWheelWithoutPolling() {
+        // Given
+        notificationDispatcher.shutdown();
+        notificationDispatcher = new NotificationDispatcher(outboxRepository, notificationChannel, notificationExecutors,
+                transactionManager, meterRegistry, BATCH_SIZE, 3, 10, 60_000, 60_000, 2000);
+        List<NotificationMessage> batch = messages(1, 1, 0);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(notificationChannel.deliver(anyList())).thenReturn(Map.of(1L, "gateway timeout"), Map.of());
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(outboxRepository, timeout(2000)).markSent(List.of(batch.get(0)));
+        verify(notificationChannel, times(2)).deliver(anyList());
+        verify(outboxRepository, times(1)).claimPending(eq(BATCH_SIZE), any());
+        assertEquals(1, batch.get(0).getAttempts());
+        assertEquals(0, notificationDispatcher.retryQueueDepth());
+    }
+
+    @Test
+    void dispatch_DeliversEachTypeOnItsOwnExecutorAndLeavesRejectedRowsInOutbox() {
+        // Given
+        NotificationMessage confirmation = messages(1, 1, 0).get(0);
+        NotificationMessage cancellation = NotificationMessage.builder()
+                .id(2L)
+                .type(NotificationType.ORDER_CANCELLATION)
+                .orderId(2L)
+                .recipient("1234567890")
+                .message("Your order 2 has been cancelled.")
+                .build();
+        NotificationMessage secondConfirmation = messages(3, 3, 0).get(0);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(List.of(confirmation, cancellation, secondConfirmation));
+        when(notificationChannel.deliver(anyList())).thenReturn(Map.of());
+        doAnswer(invocation -> {
+            invocation.<NotificationTask>getArgument(1).spill();
+            return null;
+        }).when(notificationExecutors).execute(eq(NotificationType.ORDER_CANCELLATION), any());
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then: the saturated cancellation pool does not hold up confirmations, and the poll stops
+        verify(notificationChannel).deliver(List.of(confirmation, secondConfirmation));
+        verify(outboxRepository).markSent(List.of(confirmation, secondConfirmation));
+        verify(outboxRepository, never()).markFailed(eq(cancellation), any(), any());
+        verify(outboxRepository).releaseClaims(List.of(cancellation));
+        verify(outboxRepository, times(1)).claimPending(eq(BATCH_SIZE), any());
+    }
+
+    @Test
+    void dispatch_GivesUpAfterMaxAttempts() {
+        // Given
+        List<NotificationMessage> batch = messages(1, 1, 2);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(notificationChannel.deliver(batch)).thenThrow(new RuntimeException("gateway down"));
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(outboxRepository).markFailed(batch.get(0), null, "gateway down");
+        verify(outboxRepository).markSent(List.of());
+    }
+
+    @Test
+    void dispatch_LeavesDeliveriesThatMissTheTimeoutForALaterPoll() throws Exception {
+        // Given
+        notificationDispatcher.shutdown();
+        notificationDispatcher = new NotificationDispatcher(outboxRepository, notificationChannel, notificationExecutors,
+                transactionManager, meterRegistry, BATCH_SIZE, 3, 1000, 60_000, 60_000, 50);
+        List<NotificationMessage> batch = messages(1, 3, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(notificationChannel.deliver(batch)).thenAnswer(invocation -> {
+            release.await();
+            return Map.of();
+        });
+
+        // When
+        notificationDispatcher.dispatch();
+        release.countDown();
+
+        // Then: a full batch timed out, so the poll stops instead of claiming more
+        verify(outboxRepository).releaseClaims(batch);
+        verify(outboxRepository, never()).markSent(anyList());
+        verify(outboxRepository, times(1)).claimPending(eq(BATCH_SIZE), any());
+    }
+
+    @Test
+    void dispatch_DoesNotDeliverOnTheDispatcherThreadWhenPoolRunsTaskInline() {
+        // Given
+        List<NotificationMessage> batch = messages(1, 1, 0);
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        doAnswer(invocation -> {
+            invocation.<NotificationTask>getArgument(1).run();
+            return null;
+        }).when(notificationExecutors).execute(any(), any());
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(notificationChannel, never()).deliver(anyList());
+        verify(outboxRepository).releaseClaims(batch);
+    }
+
+    @Test
+    void dispatch_ClaimsRowsForTheLeaseAndDeliversOutsideTheClaimTransaction() {
+        // Given
+        List<NotificationMessage> batch = messages(1, 1, 0);
+        LocalDateTime before = LocalDateTime.now();
+        when(outboxRepository.claimPending(eq(BATCH_SIZE), any())).thenReturn(batch);
+        when(notificationChannel.deliver(batch)).thenAnswer(invocation -> {
+            verify(transactionManager, times(1)).commit(any());
+            return Map.of();
+        });
+
+        // When
+        notificationDispatcher.dispatch();
+
+        // Then
+        verify(outboxRepository).claimPending(eq(BATCH_SIZE),
+                argThat(leaseUntil -> !leaseUntil.isBefore(before.plusSeconds(60))));
+        verify(outboxRepository).markSent(batch);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    private static List<NotificationMessage> messages(long firstId, long lastId, int attempts) {
+        return LongStream.rangeClosed(firstId, lastId)
+                .mapToObj(id -> NotificationMessage.builder()
+                        .id(id)
+                        .type(NotificationType.ORDER_CONFIRMATION)
+                        .orderId(id)
+                        .recipient("1234567890")
+                        .message("Your order " + id + " is confirmed.")
+                        .attempts(attempts)
+                        .build())
+                .toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.config.NotificationExecutorProperties;
+import com.shop.process_order_service.config.NotificationExecutorProperties.Pool;
+import com.shop.process_order_service.config.NotificationExecutorProperties.RejectionPolicy;
+import com.shop.process_order_service.entity.NotificationType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotificationExecutorsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private NotificationExecutors notificationExecutors;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        release.countDown();
+        notificationExecutors.shutdown();
+    }
+
+    @Test
+    void execute_CallerRunsWhenPoolAndQueueAreFull() throws Exception {
+        // Given
+        saturate(NotificationType.ORDER_CONFIRMATION, RejectionPolicy.CALLER_RUNS);
+
+        // When
+        notificationExecutors.execute(NotificationType.ORDER_CONFIRMATION, new RecordingTask("overflow"));
+
+        // Then
+        assertEquals(List.of("ran overflow on " + Thread.currentThread().getName()), events);
+        assertEquals(1.0, rejections("notification-order-confirmation"));
+    }
+
+    @Test
+    void execute_DropsOldestQueuedTaskToMakeRoom() throws Exception {
+        // Given
+        saturate(NotificationType.QUEUE_UPDATE, RejectionPolicy.DROP_OLDEST);
+
+        // When
+        notificationExecutors.execute(NotificationType.QUEUE_UPDATE, new RecordingTask("newest"));
+
+        // Then
+        assertEquals(List.of("dropped queued"), events);
+        assertEquals(1.0, meterRegistry.get("executor.queued").tag("name", "notification-queue-update").gauge().value());
+        release.countDown();
+        waitFor("ran newest");
+    }
+
+    @Test
+    void execute_SpillsWhenPoolAndQueueAreFull() throws Exception {
+        // Given
+        saturate(NotificationType.ORDER_CANCELLATION, RejectionPolicy.SPILL_TO_DATABASE);
+
+        // When
+        notificationExecutors.execute(NotificationType.ORDER_CANCELLATION, new RecordingTask("overflow"));
+
+        // Then
+        assertEquals(List.of("spilled overflow"), events);
+        assertEquals(1.0, rejections("notification-order-cancellation"));
+        assertEquals(1.0, meterRegistry.get("executor.active").tag("name", "notification-order-cancellation").gauge().value());
+    }
+
+    /**
+     * Configures every pool with one thread and a queue of one, then blocks the given type's
+     * thread and fills its queue.
+     */
+    private void saturate(NotificationType type, RejectionPolicy policy) throws InterruptedException {
+        NotificationExecutorProperties properties = new NotificationExecutorProperties();
+        Pool pool = new Pool();
+        pool.setCoreSize(1);
+        pool.setMaxSize(1);
+        pool.setQueueCapacity(1);
+        pool.setRejectionPolicy(policy);
+        properties.getExecutors().put(type, pool);
+        notificationExecutors = new NotificationExecutors(properties, meterRegistry);
+
+        CountDownLatch started = new CountDownLatch(1);
+        notificationExecutors.execute(type, new RecordingTask("blocking") {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(2, TimeUnit.SECONDS));
+        notificationExecutors.execute(type, new RecordingTask("queued"));
+    }
+
+    private double rejections(String name) {
+        return meterRegistry.get("notification.executor.rejected").tag("name", name).counter().count();
+    }
+
+    private void waitFor(String event) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (events.stream().noneMatch(e -> e.startsWith(event)) && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(events.stream().anyMatch(e -> e.startsWith(event)), () -> "missing " + event + " in " + events);
+    }
+
+    private class RecordingTask extends NotificationTask {
+
+        private final String name;
+
+        RecordingTask(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void run() {
+            events.add("ran " + name + " on " + Thread.currentThread().getName());
+        }
+
+        @Override
+        void drop() {
+            events.add("dropped " + name);
+        }
+
+        @Override
+        void spill() {
+            events.add("spilled " + name);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.Order;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimisticLockRetryAspectTest {
+
+    private StatusUpdater target;
+    private StatusUpdater proxy;
+
+    @BeforeEach
+    void setUp() {
+        target = new StatusUpdater();
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new OptimisticLockRetryAspect(3, 0));
+        proxy = factory.getProxy();
+    }
+
+    @Test
+    void retry_SucceedsAfterLostRace() {
+        // Given
+        target.conflicts = 2;
+
+        // When
+        proxy.update();
+
+        // Then
+        assertEquals(3, target.calls.get());
+    }
+
+    @Test
+    void retry_GivesUpAfterMaxAttempts() {
+        // Given
+        target.conflicts = 5;
+
+        // When & Then
+        assertThrows(ObjectOptimisticLockingFailureException.class, proxy::update);
+        assertEquals(3, target.calls.get());
+    }
+
+    @Test
+    void retry_DoesNotRetryOtherFailures() {
+        // Given
+        target.failure = new IllegalStateException("invalid transition");
+
+        // When & Then
+        assertThrows(IllegalStateException.class, proxy::update);
+        assertEquals(1, target.calls.get());
+    }
+
+    static class StatusUpdater {
+        final AtomicInteger calls = new AtomicInteger();
+        int conflicts;
+        RuntimeException failure;
+
+        @RetryOnOptimisticLock
+        public void update() {
+            int call = calls.incrementAndGet();
+            if (failure != null) {
+                throw failure;
+            }
+            if (call <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Order.class, 1L);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.OrderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderETagsTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private ShopQueueEngine shopQueueEngine;
+
+    @Test
+    void forQueueStatus_SameEpochOnAnotherBoot_GivesAnotherTag() {
+        // Given: a restarted instance whose epoch sequence is back at the same value
+        when(shopQueueEngine.queueEpoch(1L, 7L)).thenReturn(Optional.of(3L));
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(
+                new ShopQueueEngine.QueueEntry(1L, 1L, 7L, 1, 2, 3, 10, OrderStatus.PENDING)));
+        OrderETags beforeRestart = new OrderETags(orderRepository, shopQueueEngine, 100, 10_000);
+        OrderETags afterRestart = new OrderETags(orderRepository, shopQueueEngine, 100, 10_000);
+
+        // When
+        String tag = beforeRestart.forQueueStatus(1L, 7L).orElseThrow();
+
+        // Then
+        assertEquals(tag, beforeRestart.forQueueStatus(1L, 7L).orElseThrow());
+        assertNotEquals(tag, afterRestart.forQueueStatus(1L, 7L).orElseThrow());
+    }
+}
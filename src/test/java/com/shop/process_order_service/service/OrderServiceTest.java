@@ -6,7 +6,6 @@ import com.shop.process_order_service.exception.*;
 import com.shop.process_order_service.mapper.OrderMapper;
 import com.shop.process_order_service.repository.CoffeeShopRepository;
 import com.shop.process_order_service.repository.CustomerRepository;
-import com.shop.process_order_service.repository.MenuItemRepository;
 import com.shop.process_order_service.repository.OrderRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -14,13 +13,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -36,13 +39,15 @@ class OrderServiceTest {
     @Mock
     private CoffeeShopRepository coffeeShopRepository;
     @Mock
-    private MenuItemRepository menuItemRepository;
+    private MenuCatalog menuCatalog;
     @Mock
     private QueueService queueService;
     @Mock
     private NotificationService notificationService;
     @Mock
     private OrderMapper orderMapper;
+    @Mock
+    private OrderETags orderETags;
 
     @InjectMocks
     private OrderService orderService;
@@ -110,10 +115,9 @@ class OrderServiceTest {
         // Given
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
         when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5);
-        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(testMenuItem));
-        when(queueService.assignQueuePosition(1L)).thenReturn(1);
-        when(queueService.calculateEstimatedWaitTime(1L, 1)).thenReturn(15);
+        when(queueService.admitOrder(testCoffeeShop)).thenReturn(1);
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem));
+        when(queueService.calculateEstimatedWaitTime(any(Order.class))).thenReturn(15);
         when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
         when(orderMapper.toItemEntity(any(OrderItemDto.class))).thenReturn(new OrderItem());
         when(orderMapper.toDto(any(Order.class))).thenReturn(testOrderResponse);
@@ -125,6 +129,7 @@ class OrderServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getOrderId());
         verify(customerRepository).save(any(Customer.class));
+        verify(queueService).enqueueOrder(testOrder);
         verify(notificationService).sendOrderConfirmation(any(Order.class));
         assertEquals(6, testCustomer.getLoyaltyScore()); // Incremented by 1
     }
@@ -161,7 +166,8 @@ class OrderServiceTest {
         // Given
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
         when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(10); // At max capacity
+        when(queueService.admitOrder(testCoffeeShop))
+                .thenThrow(new QueueFullException("Queue is full for shop: Test Coffee Shop. Please try again later."));
 
         // When & Then
         QueueFullException exception = assertThrows(
@@ -176,8 +182,7 @@ class OrderServiceTest {
         // Given
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
         when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5);
-        when(menuItemRepository.findById(1L)).thenReturn(Optional.empty());
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of());
 
         // When & Then
         RuntimeException exception = assertThrows(
@@ -193,8 +198,7 @@ class OrderServiceTest {
         testMenuItem.setAvailable(false);
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
         when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5);
-        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(testMenuItem));
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem));
 
         // When & Then
         RuntimeException exception = assertThrows(
@@ -207,8 +211,10 @@ class OrderServiceTest {
     @Test
     void getOrder_Success() {
         // Given
-        when(orderRepository.findByIdWithOrderItems(1L)).thenReturn(Optional.of(testOrder));
-        when(orderMapper.toDto(testOrder)).thenReturn(testOrderResponse);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 2, 9, 30);
+        when(orderRepository.findOrderRows(List.of(1L))).thenReturn(List.of(
+                row(1L, createdAt, "Cappuccino", 2),
+                row(1L, createdAt, "Croissant", 1)));
 
         // When
         OrderResponseDto result = orderService.getOrder(1L);
@@ -216,12 +222,17 @@ class OrderServiceTest {
         // Then
         assertNotNull(result);
         assertEquals(1L, result.getOrderId());
+        assertEquals("John Doe", result.getCustomerName());
+        assertEquals(2, result.getItems().size());
+        assertEquals("Croissant", result.getItems().get(1).getItemName());
+        assertEquals(2L, result.getVersion());
+        verifyNoInteractions(orderMapper);
     }
 
     @Test
     void getOrder_NotFound() {
         // Given
-        when(orderRepository.findByIdWithOrderItems(1L)).thenReturn(Optional.empty());
+        when(orderRepository.findOrderRows(List.of(1L))).thenReturn(List.of());
 
         // When & Then
         OrderNotFoundException exception = assertThrows(
@@ -234,48 +245,157 @@ class OrderServiceTest {
     @Test
     void getCustomerOrders_Success() {
         // Given
-        List<Order> orders = Arrays.asList(testOrder);
-        when(orderRepository.findOrdersWithCustomerByCustomerId(1L)).thenReturn(orders);
-        when(orderMapper.toDto(testOrder)).thenReturn(testOrderResponse);
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 2, 9, 30);
+        when(orderRepository.findCustomerHistoryKeys(1L, Limit.of(21)))
+                .thenReturn(List.of(new OrderHistoryCursor(createdAt, 1L)));
+        when(orderRepository.findOrderRows(List.of(1L))).thenReturn(List.of(row(1L, createdAt, "Cappuccino", 2)));
 
         // When
-        List<OrderResponseDto> result = orderService.getCustomerOrders(1L);
+        OrderHistoryPage result = orderService.getCustomerOrders(1L, null, 20);
 
         // Then
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(1L, result.get(0).getOrderId());
+        assertEquals(1, result.getOrders().size());
+        assertEquals(1L, result.getOrders().get(0).getOrderId());
+        assertNull(result.getNextCursor());
+    }
+
+    @Test
+    void getCustomerOrders_FullPage_ReturnsCursorThatContinuesAfterLastOrder() {
+        // Given
+        OrderHistoryCursor newer = new OrderHistoryCursor(LocalDateTime.of(2024, 5, 2, 9, 30), 5L);
+        OrderHistoryCursor older = new OrderHistoryCursor(LocalDateTime.of(2024, 5, 1, 8, 0), 3L);
+        when(orderRepository.findCustomerHistoryKeys(1L, Limit.of(2))).thenReturn(List.of(newer, older));
+        when(orderRepository.findOrderRows(List.of(5L))).thenReturn(List.of(row(5L, newer.createdAt(), null, null)));
+
+        // When
+        OrderHistoryPage first = orderService.getCustomerOrders(1L, null, 1);
+
+        // Then
+        assertEquals(1, first.getOrders().size());
+        assertTrue(first.getOrders().get(0).getItems().isEmpty());
+        assertEquals(newer, OrderHistoryCursor.decode(first.getNextCursor()));
+
+        // When
+        when(orderRepository.findCustomerHistoryKeysAfter(1L, newer.createdAt(), 5L, Limit.of(2))).thenReturn(List.of());
+        OrderHistoryPage last = orderService.getCustomerOrders(1L, first.getNextCursor(), 1);
+
+        // Then
+        assertTrue(last.getOrders().isEmpty());
+        assertNull(last.getNextCursor());
+        verify(orderRepository, times(1)).findOrderRows(anyCollection());
+    }
+
+    @Test
+    void getCustomerOrders_InvalidCursor() {
+        // When & Then
+        assertThrows(InvalidCursorException.class, () -> orderService.getCustomerOrders(1L, "not-a-cursor", 20));
+    }
+
+    @Test
+    void exportCustomerOrders_PassesEachOrderWithItsItemsToSink() {
+        // Given
+        LocalDateTime newer = LocalDateTime.of(2024, 5, 2, 9, 30);
+        LocalDateTime older = LocalDateTime.of(2024, 5, 1, 8, 0);
+        when(orderRepository.streamCustomerHistoryRows(1L)).thenReturn(Stream.of(
+                row(5L, newer, "Cappuccino", 2),
+                row(5L, newer, "Croissant", 1),
+                row(3L, older, null, null)));
+        List<OrderResponseDto> exported = new ArrayList<>();
+
+        // When
+        long count = orderService.exportCustomerOrders(1L, exported::add);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of(5L, 3L), exported.stream().map(OrderResponseDto::getOrderId).toList());
+        assertEquals(2, exported.get(0).getItems().size());
+        assertTrue(exported.get(1).getItems().isEmpty());
+    }
+
+    @Test
+    void checkCustomerHasOrders_NoOrders() {
+        // Given
+        when(orderRepository.existsByCustomerId(1L)).thenReturn(false);
+
+        // When & Then
+        assertThrows(CustomerNotFoundException.class, () -> orderService.checkCustomerHasOrders(1L));
     }
 
     @Test
     void getCustomerOrders_NoOrdersFound() {
         // Given
-        when(orderRepository.findOrdersWithCustomerByCustomerId(1L)).thenReturn(Collections.emptyList());
+        when(orderRepository.findCustomerHistoryKeys(1L, Limit.of(21))).thenReturn(Collections.emptyList());
 
         // When & Then
         CustomerNotFoundException exception = assertThrows(
                 CustomerNotFoundException.class,
-                () -> orderService.getCustomerOrders(1L)
+                () -> orderService.getCustomerOrders(1L, null, 20)
         );
         assertEquals("No orders found for customer with ID: 1", exception.getMessage());
     }
 
     @Test
-    void getQueuePosition_ActiveOrder() {
+    void getQueuePosition_AnsweredFromQueueEngine() {
         // Given
+        QueuePositionDto queued = QueuePositionDto.builder()
+                .orderId(1L)
+                .currentPosition(2)
+                .totalInQueue(4)
+                .estimatedWaitTime(10)
+                .status("CONFIRMED")
+                .build();
+        when(queueService.findQueuePosition(1L, 1L)).thenReturn(Optional.of(queued));
+
+        // When
+        QueuePositionDto result = orderService.getQueuePosition(1L, 1L);
+
+        // Then
+        assertSame(queued, result);
+        verifyNoInteractions(orderRepository);
+    }
+
+    @Test
+    void getQueuePosition_ActiveOrderNotInMemory_IsRankedInReloadedQueue() {
+        // Given: stored position 1 is stale, the reloaded queue has the order second in lane 2
+        testOrder.setQueuePosition(1);
+        QueuePositionDto reloaded = QueuePositionDto.builder()
+                .orderId(1L)
+                .lane(2)
+                .currentPosition(2)
+                .totalInQueue(5)
+                .estimatedWaitTime(12)
+                .status("PENDING")
+                .build();
+        when(queueService.findQueuePosition(1L, 1L)).thenReturn(Optional.empty());
         when(orderRepository.findByIdAndCustomerId(1L, 1L)).thenReturn(Optional.of(testOrder));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5);
+        when(queueService.reloadQueuePosition(1L, 1L, 1L)).thenReturn(Optional.of(reloaded));
 
         // When
         QueuePositionDto result = orderService.getQueuePosition(1L, 1L);
 
         // Then
-        assertNotNull(result);
-        assertEquals(1L, result.getOrderId());
-        assertEquals(1, result.getCurrentPosition());
-        assertEquals(5, result.getTotalInQueue());
-        assertEquals(15, result.getEstimatedWaitTime());
-        assertEquals("PENDING", result.getStatus());
+        assertSame(reloaded, result);
+        assertEquals(2, result.getLane());
+        verify(queueService, never()).getActiveOrderCount(anyLong());
+    }
+
+    @Test
+    void getQueuePosition_ActiveOrderLeftQueueDuringReload_ReturnsFinalStatus() {
+        // Given
+        Order completed = new Order();
+        completed.setId(1L);
+        completed.setStatus(OrderStatus.COMPLETED);
+        when(queueService.findQueuePosition(1L, 1L)).thenReturn(Optional.empty());
+        when(orderRepository.findByIdAndCustomerId(1L, 1L)).thenReturn(Optional.of(testOrder), Optional.of(completed));
+        when(queueService.reloadQueuePosition(1L, 1L, 1L)).thenReturn(Optional.empty());
+
+        // When
+        QueuePositionDto result = orderService.getQueuePosition(1L, 1L);
+
+        // Then
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(0, result.getCurrentPosition());
     }
 
     @Test
@@ -335,7 +455,7 @@ class OrderServiceTest {
         // Then
         assertEquals(OrderStatus.CANCELLED, testOrder.getStatus());
         verify(orderRepository).save(testOrder);
-        verify(queueService).reorderQueue(1L);
+        verify(queueService).removeFromQueue(testOrder);
         verify(notificationService).sendOrderCancellation("1234567890", 1L);
     }
 
@@ -366,6 +486,40 @@ class OrderServiceTest {
         assertEquals("Cannot cancel completed order", exception.getMessage());
     }
 
+    @Test
+    void cancelOrder_AlreadyCancelledIsNoOp() {
+        // Given
+        testOrder.setStatus(OrderStatus.CANCELLED);
+        when(orderRepository.findByIdAndCustomerId(1L, 1L)).thenReturn(Optional.of(testOrder));
+
+        // When
+        orderService.cancelOrder(1L, 1L);
+
+        // Then
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(queueService, never()).removeFromQueue(any(Order.class));
+        verify(notificationService, never()).sendOrderCancellation(anyString(), anyLong());
+    }
+
+    @Test
+    void updateOrderStatuses_SameStatusIsNoOp() {
+        // Given
+        testOrder.setStatus(OrderStatus.COMPLETED);
+        OrderStatusUpdateDto update = new OrderStatusUpdateDto();
+        update.setOrderId(1L);
+        update.setNewStatus(OrderStatus.COMPLETED);
+
+        when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
+        when(orderRepository.findByIdInAndCoffeeShopId(1L, 1L)).thenReturn(testOrder);
+
+        // When
+        orderService.updateOrderStatuses(1L, update);
+
+        // Then
+        verify(orderRepository, never()).save(any(Order.class));
+        verify(queueService, never()).removeFromQueue(any(Order.class));
+    }
+
     @Test
     void updateOrderStatuses_Success() {
         // Given
@@ -381,7 +535,10 @@ class OrderServiceTest {
 
         // Then
         assertEquals(OrderStatus.PROCESSING, testOrder.getStatus());
+        assertNotNull(testOrder.getProcessingStartedAt());
         verify(orderRepository).save(testOrder);
+        verify(queueService).updateQueuedStatus(testOrder);
+        verify(queueService, never()).removeFromQueue(any(Order.class));
     }
 
     @Test
@@ -399,10 +556,33 @@ class OrderServiceTest {
 
         // Then
         assertEquals(OrderStatus.COMPLETED, testOrder.getStatus());
-        verify(queueService).reorderQueue(1L);
+        verify(queueService).removeFromQueue(testOrder);
         verify(orderRepository).save(testOrder);
     }
 
+    @Test
+    void updateOrderStatuses_ProcessingToCompletedRecordsPreparationTime() {
+        // Given
+        testOrder.setStatus(OrderStatus.PROCESSING);
+        testOrder.setProcessingStartedAt(LocalDateTime.now().minusMinutes(4));
+        // A later write that is not a status change must not shorten the sample
+        testOrder.setUpdatedAt(LocalDateTime.now().minusMinutes(1));
+        OrderStatusUpdateDto update = new OrderStatusUpdateDto();
+        update.setOrderId(1L);
+        update.setNewStatus(OrderStatus.COMPLETED);
+
+        when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
+        when(orderRepository.findByIdInAndCoffeeShopId(1L, 1L)).thenReturn(testOrder);
+
+        // When
+        orderService.updateOrderStatuses(1L, update);
+
+        // Then
+        verify(queueService).recordPreparationTime(eq(testOrder),
+                argThat(duration -> duration.toSeconds() >= 240 && duration.toSeconds() < 300));
+        verify(queueService).removeFromQueue(testOrder);
+    }
+
     @Test
     void updateOrderStatuses_ShopNotFound() {
         // Given
@@ -457,6 +637,78 @@ class OrderServiceTest {
         assertTrue(exception.getMessage().contains("Invalid status transition"));
     }
 
+    @Test
+    void updateOrderStatusesBulk_AppliesValidUpdatesAndUpdatesQueueOnce() {
+        // Given
+        Order processing = new Order();
+        processing.setId(2L);
+        processing.setCoffeeShop(testCoffeeShop);
+        processing.setStatus(OrderStatus.PROCESSING);
+        Order completed = new Order();
+        completed.setId(3L);
+        completed.setCoffeeShop(testCoffeeShop);
+        completed.setStatus(OrderStatus.COMPLETED);
+
+        when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
+        when(orderRepository.findByCoffeeShopIdAndIdIn(eq(1L), anyCollection()))
+                .thenReturn(List.of(testOrder, processing, completed));
+
+        List<OrderStatusUpdateDto> updates = List.of(
+                statusUpdate(1L, OrderStatus.CONFIRMED),
+                statusUpdate(2L, OrderStatus.COMPLETED),
+                statusUpdate(3L, OrderStatus.PROCESSING),
+                statusUpdate(99L, OrderStatus.COMPLETED),
+                statusUpdate(3L, OrderStatus.COMPLETED));
+
+        // When
+        BulkOrderStatusUpdateResponseDto result = orderService.updateOrderStatusesBulk(1L, updates);
+
+        // Then
+        assertEquals(3, result.getApplied());
+        assertEquals(2, result.getRejected());
+        assertEquals("INVALID_ORDER_STATE", result.getResults().get(2).getErrorCode());
+        assertEquals("ORDER_NOT_FOUND", result.getResults().get(3).getErrorCode());
+        assertTrue(result.getResults().get(4).isSuccess());
+        assertEquals(OrderStatus.CONFIRMED, testOrder.getStatus());
+        assertEquals(OrderStatus.COMPLETED, processing.getStatus());
+        verify(queueService, times(1)).applyStatusChanges(1L, List.of(processing), List.of(testOrder));
+        verify(queueService, never()).removeFromQueue(any(Order.class));
+        verify(orderETags, times(2)).orderChanged(any(Order.class));
+    }
+
+    @Test
+    void updateOrderStatusesBulk_NothingChangedLeavesQueueAlone() {
+        // Given
+        when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
+        when(orderRepository.findByCoffeeShopIdAndIdIn(eq(1L), anyCollection())).thenReturn(List.of(testOrder));
+
+        // When
+        BulkOrderStatusUpdateResponseDto result = orderService.updateOrderStatusesBulk(1L,
+                List.of(statusUpdate(1L, OrderStatus.PENDING)));
+
+        // Then
+        assertEquals(1, result.getApplied());
+        verify(queueService, never()).applyStatusChanges(anyLong(), anyList(), anyList());
+    }
+
+    @Test
+    void updateOrderStatusesBulk_ShopNotFound() {
+        // Given
+        when(coffeeShopRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // When & Then
+        assertThrows(ShopNotFoundException.class,
+                () -> orderService.updateOrderStatusesBulk(1L, List.of(statusUpdate(1L, OrderStatus.CONFIRMED))));
+        verify(orderRepository, never()).findByCoffeeShopIdAndIdIn(anyLong(), anyCollection());
+    }
+
+    private static OrderStatusUpdateDto statusUpdate(Long orderId, OrderStatus newStatus) {
+        OrderStatusUpdateDto update = new OrderStatusUpdateDto();
+        update.setOrderId(orderId);
+        update.setNewStatus(newStatus);
+        return update;
+    }
+
     @Test
     void isValidStatusTransition_PendingToConfirmed() {
         // Test valid transitions from PENDING
@@ -619,11 +871,9 @@ class OrderServiceTest {
 
         when(customerRepository.findById(1L)).thenReturn(Optional.of(testCustomer));
         when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
-        when(orderRepository.countActiveOrdersByShop(1L)).thenReturn(5);
-        when(menuItemRepository.findById(1L)).thenReturn(Optional.of(testMenuItem));
-        when(menuItemRepository.findById(2L)).thenReturn(Optional.of(menuItem2));
-        when(queueService.assignQueuePosition(1L)).thenReturn(1);
-        when(queueService.calculateEstimatedWaitTime(1L, 1)).thenReturn(15);
+        when(queueService.admitOrder(testCoffeeShop)).thenReturn(1);
+        when(menuCatalog.getMenu(1L)).thenReturn(Map.of(1L, testMenuItem, 2L, menuItem2));
+        when(queueService.calculateEstimatedWaitTime(any(Order.class))).thenReturn(15);
         when(orderRepository.save(any(Order.class))).thenReturn(testOrder);
         when(orderMapper.toItemEntity(any(OrderItemDto.class))).thenReturn(new OrderItem());
         when(orderMapper.toDto(any(Order.class))).thenReturn(testOrderResponse);
@@ -633,6 +883,13 @@ class OrderServiceTest {
 
         // Then
         assertNotNull(result);
-        verify(menuItemRepository, times(2)).findById(anyLong());
+        verify(menuCatalog, times(1)).getMenu(1L);
+    }
+
+    private static OrderRow row(Long orderId, LocalDateTime createdAt, String itemName, Integer quantity) {
+        BigDecimal unitPrice = quantity == null ? null : new BigDecimal("4.50");
+        return new OrderRow(orderId, "John Doe", "Test Coffee Shop", OrderStatus.PENDING, new BigDecimal("9.00"),
+                1, 5, createdAt, 2L, itemName, quantity, unitPrice,
+                quantity == null ? null : unitPrice.multiply(BigDecimal.valueOf(quantity)), null);
     }
-}
\ No newline at end of file
+}
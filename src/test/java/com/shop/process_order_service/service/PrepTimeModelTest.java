@@ -0,0 +1,86 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.repository.PrepTimeEstimateStore;
+import com.shop.process_order_service.repository.PrepTimeEstimateStore.PrepTimeEstimate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrepTimeModelTest {
+
+    @Mock
+    private PrepTimeEstimateStore store;
+
+    private PrepTimeModel prepTimeModel;
+
+    @BeforeEach
+    void setUp() {
+        prepTimeModel = new PrepTimeModel(store, 0.5, 300);
+    }
+
+    @Test
+    void estimateSeconds_UsesDefaultForUnknownItemsAndEmptyOrders() {
+        // When & Then
+        assertEquals(600, prepTimeModel.estimateSeconds(Map.of(1L, 2)));
+        assertEquals(300, prepTimeModel.estimateSeconds(Map.of()));
+    }
+
+    @Test
+    void record_SplitsObservedTimeByCurrentEstimates() {
+        // Given
+        when(store.findAll()).thenReturn(List.of(new PrepTimeEstimate(1L, 60, 10), new PrepTimeEstimate(2L, 180, 10)));
+        prepTimeModel.load();
+
+        // When: expected 60 + 180 = 240s, observed 480s, so both items took twice as long
+        prepTimeModel.record(Map.of(1L, 1, 2L, 1), 480);
+
+        // Then
+        assertEquals(90, prepTimeModel.estimateSeconds(Map.of(1L, 1)));
+        assertEquals(270, prepTimeModel.estimateSeconds(Map.of(2L, 1)));
+    }
+
+    @Test
+    void flush_WritesOnlyChangedEstimatesOnce() {
+        // Given
+        prepTimeModel.record(Map.of(1L, 2), 400);
+
+        // When
+        prepTimeModel.flush();
+        prepTimeModel.flush();
+
+        // Then
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<PrepTimeEstimate>> written = ArgumentCaptor.forClass(Collection.class);
+        verify(store, times(1)).saveAll(written.capture());
+        PrepTimeEstimate estimate = written.getValue().iterator().next();
+        assertEquals(1L, estimate.menuItemId());
+        assertEquals(250, estimate.averageSeconds(), 0.001);
+        assertEquals(1, estimate.sampleCount());
+    }
+
+    @Test
+    void flush_KeepsEstimatesPendingWhenWriteFails() {
+        // Given
+        prepTimeModel.record(Map.of(1L, 1), 120);
+        doThrow(new RuntimeException("database unavailable")).doNothing().when(store).saveAll(anyCollection());
+
+        // When
+        prepTimeModel.flush();
+        prepTimeModel.flush();
+
+        // Then
+        verify(store, times(2)).saveAll(anyCollection());
+    }
+}
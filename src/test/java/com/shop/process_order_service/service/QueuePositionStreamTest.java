@@ -0,0 +1,213 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.QueuePositionDto;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.OrderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueuePositionStreamTest {
+
+    @Mock
+    private ShopQueueEngine shopQueueEngine;
+    @Mock
+    private OrderRepository orderRepository;
+
+    private QueuePositionStream queuePositionStream;
+    private QueuePositionDto currentPosition;
+
+    @BeforeEach
+    void setUp() {
+        queuePositionStream = new QueuePositionStream(shopQueueEngine, orderRepository, 60_000, 1, 100, 10_000);
+        currentPosition = QueuePositionDto.builder()
+                .orderId(1L)
+                .lane(1)
+                .currentPosition(2)
+                .totalInQueue(3)
+                .estimatedWaitTime(10)
+                .status("PENDING")
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        queuePositionStream.shutdown();
+    }
+
+    @Test
+    void subscribe_OrderNotQueued_SendsCurrentStatusWithoutSubscribing() {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.empty());
+
+        // When
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // Then
+        assertEquals(0, queuePositionStream.subscriberCount());
+    }
+
+    @Test
+    void subscribe_OrderOfAnotherCustomer_IsNotSubscribed() {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(8L, 2)));
+
+        // When
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // Then
+        assertEquals(0, queuePositionStream.subscriberCount());
+    }
+
+    @Test
+    void flush_OnlyVisitsSubscribersOfChangedShops() {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(7L, 2)), Optional.of(entry(7L, 1)));
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // When
+        queuePositionStream.shopChanged(2L);
+        queuePositionStream.flush();
+
+        // Then
+        assertEquals(1, queuePositionStream.subscriberCount());
+        verify(shopQueueEngine, times(1)).find(1L);
+
+        // When
+        queuePositionStream.shopChanged(1L);
+        queuePositionStream.flush();
+        queuePositionStream.flush();
+
+        // Then
+        verify(shopQueueEngine, times(2)).find(1L);
+    }
+
+    @Test
+    void flush_OrderLeftQueue_IsLookedUpOnce() {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(7L, 2)), Optional.empty());
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // When
+        queuePositionStream.orderLeft(1L, 1L, OrderStatus.COMPLETED);
+        queuePositionStream.flush();
+
+        // Then
+        verify(shopQueueEngine, times(2)).find(1L);
+    }
+
+    @Test
+    void flush_OrderLeftThroughReload_SendsStatusFromDatabase() throws InterruptedException {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(7L, 2)), Optional.empty());
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(OrderStatus.COMPLETED));
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // When
+        queuePositionStream.shopChanged(1L);
+        queuePositionStream.flush();
+
+        // Then
+        awaitSubscriberCount(0);
+        verify(orderRepository).findStatusById(1L);
+    }
+
+    @Test
+    void flush_OrderMissingButStillActive_KeepsSubscriber() throws InterruptedException {
+        // Given
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(7L, 2)), Optional.empty());
+        when(orderRepository.findStatusById(1L)).thenReturn(Optional.of(OrderStatus.CONFIRMED));
+        queuePositionStream.subscribe(7L, currentPosition);
+
+        // When
+        queuePositionStream.shopChanged(1L);
+        queuePositionStream.flush();
+
+        // Then
+        verify(orderRepository, timeout(1000)).findStatusById(1L);
+        assertEquals(1, queuePositionStream.subscriberCount());
+    }
+
+    @Test
+    void flush_SendTimedOut_FailsEmitterAndReleasesBlockedWrite() throws InterruptedException {
+        // Given
+        queuePositionStream.shutdown();
+        queuePositionStream = new QueuePositionStream(shopQueueEngine, orderRepository, 60_000, 1, 100, 50);
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.of(entry(7L, 2)), Optional.of(entry(7L, 1)));
+        BlockingEmitter emitter = new BlockingEmitter();
+        queuePositionStream.subscribe(7L, currentPosition, emitter);
+        queuePositionStream.shopChanged(1L);
+        queuePositionStream.flush();
+        assertTrue(emitter.writeStarted.await(1, TimeUnit.SECONDS));
+
+        // When
+        Thread.sleep(100);
+        queuePositionStream.shopChanged(1L);
+        queuePositionStream.flush();
+
+        // Then
+        assertTrue(emitter.writeReleased.await(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, emitter.failure);
+        assertEquals(0, queuePositionStream.subscriberCount());
+    }
+
+    private void awaitSubscriberCount(int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && queuePositionStream.subscriberCount() != expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, queuePositionStream.subscriberCount());
+    }
+
+    private ShopQueueEngine.QueueEntry entry(Long customerId, int position) {
+        return new ShopQueueEngine.QueueEntry(1L, 1L, customerId, 1, position, 3, position * 5, OrderStatus.PENDING);
+    }
+
+    /**
+     * Accepts the first event, then blocks every write like a client that stopped reading, until
+     * the emitter is completed with an error.
+     */
+    private static final class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch writeStarted = new CountDownLatch(1);
+        private final CountDownLatch failed = new CountDownLatch(1);
+        private final CountDownLatch writeReleased = new CountDownLatch(1);
+        private volatile Throwable failure;
+        private int sends;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (sends++ == 0) {
+                return;
+            }
+            writeStarted.countDown();
+            try {
+                failed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            writeReleased.countDown();
+            throw new IOException("Broken pipe");
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            if (failure == null) {
+                failure = ex;
+            }
+            failed.countDown();
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.exception.QueueFullException;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import com.shop.process_order_service.repository.OrderRepository;
+import com.shop.process_order_service.repository.PrepTimeEstimateStore;
+import com.shop.process_order_service.repository.ShopQueueVersionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class QueueServiceConcurrencyTest {
+
+    private static final int SHOPS = 4;
+    private static final int MAX_QUEUE_SIZE = 500;
+    private static final int ORDERS_PER_SHOP = 1500;
+    private static final int THREADS = 32;
+
+    private QueueService queueService;
+    private List<CoffeeShop> shops;
+
+    @BeforeEach
+    void setUp() {
+        OrderRepository orderRepository = mock(OrderRepository.class);
+        PrepTimeModel prepTimeModel = new PrepTimeModel(mock(PrepTimeEstimateStore.class), 0.2, 300);
+        ShopQueueLock shopQueueLock = new ShopQueueLock(mock(JdbcTemplate.class), ShopQueueLock.Mode.LOCAL);
+        queueService = new QueueService(
+                new ActiveOrderCounter(orderRepository, shopQueueLock, mock(PlatformTransactionManager.class)),
+                shopQueueLock,
+                new ShopQueueEngine(orderRepository, mock(CoffeeShopRepository.class), prepTimeModel),
+                prepTimeModel,
+                mock(QueuePositionStream.class),
+                mock(QueueUpdateNotifier.class),
+                mock(ShopQueueVersionStore.class));
+
+        shops = new ArrayList<>();
+        for (long id = 1; id <= SHOPS; id++) {
+            CoffeeShop shop = new CoffeeShop();
+            shop.setId(id);
+            shop.setName("Shop " + id);
+            shop.setMaxQueueSize(MAX_QUEUE_SIZE);
+            shops.add(shop);
+        }
+    }
+
+    @Test
+    void admitOrder_ParallelOrdersGetDistinctPositionsWithoutOverAdmission() throws Exception {
+        // Given
+        Map<Long, Set<Integer>> positions = new ConcurrentHashMap<>();
+        Map<Long, AtomicInteger> rejected = new ConcurrentHashMap<>();
+        shops.forEach(shop -> {
+            positions.put(shop.getId(), ConcurrentHashMap.newKeySet());
+            rejected.put(shop.getId(), new AtomicInteger());
+        });
+
+        // When
+        runInParallel(shop -> inTransaction(() -> {
+            try {
+                Integer position = queueService.admitOrder(shop);
+                assertTrue(positions.get(shop.getId()).add(position), "Duplicate queue position " + position);
+            } catch (QueueFullException e) {
+                rejected.get(shop.getId()).incrementAndGet();
+            }
+        }));
+
+        // Then
+        Set<Integer> expectedPositions = IntStream.rangeClosed(1, MAX_QUEUE_SIZE).boxed().collect(Collectors.toSet());
+        for (CoffeeShop shop : shops) {
+            assertEquals(expectedPositions, positions.get(shop.getId()));
+            assertEquals(ORDERS_PER_SHOP - MAX_QUEUE_SIZE, rejected.get(shop.getId()).get());
+            assertEquals(MAX_QUEUE_SIZE, queueService.getActiveOrderCount(shop.getId()));
+        }
+    }
+
+    @Test
+    void admitOrder_NeverOverAdmitsWhileOrdersAreReleased() throws Exception {
+        // Given
+        Map<Long, AtomicInteger> admitted = new ConcurrentHashMap<>();
+        Map<Long, AtomicInteger> released = new ConcurrentHashMap<>();
+        shops.forEach(shop -> {
+            admitted.put(shop.getId(), new AtomicInteger());
+            released.put(shop.getId(), new AtomicInteger());
+        });
+
+        // When: every other admitted order is cancelled in a later transaction
+        runInParallel(shop -> {
+            boolean[] admittedNow = new boolean[1];
+            inTransaction(() -> {
+                try {
+                    queueService.admitOrder(shop);
+                    admittedNow[0] = true;
+                    assertTrue(queueService.getActiveOrderCount(shop.getId()) <= MAX_QUEUE_SIZE);
+                } catch (QueueFullException ignored) {
+                    // rejected orders are expected once the queue fills up
+                }
+            });
+            if (admittedNow[0] && admitted.get(shop.getId()).incrementAndGet() % 2 == 0) {
+                Order order = new Order();
+                order.setCoffeeShop(shop);
+                inTransaction(() -> queueService.removeFromQueue(order));
+                released.get(shop.getId()).incrementAndGet();
+            }
+        });
+
+        // Then
+        for (CoffeeShop shop : shops) {
+            int active = admitted.get(shop.getId()).get() - released.get(shop.getId()).get();
+            assertEquals(active, queueService.getActiveOrderCount(shop.getId()));
+            assertTrue(active <= MAX_QUEUE_SIZE);
+        }
+    }
+
+    private void runInParallel(Consumer<CoffeeShop> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < ORDERS_PER_SHOP; i++) {
+                for (CoffeeShop shop : shops) {
+                    futures.add(pool.submit(() -> {
+                        start.await();
+                        task.accept(shop);
+                        return null;
+                    }));
+                }
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(synchronization ->
+                    synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        }
+    }
+}
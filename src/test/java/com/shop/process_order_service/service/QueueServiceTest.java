@@ -0,0 +1,137 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.QueuePositionDto;
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.ShopQueueVersionStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueueServiceTest {
+
+    @Mock
+    private ActiveOrderCounter activeOrderCounter;
+    @Mock
+    private ShopQueueLock shopQueueLock;
+    @Mock
+    private ShopQueueEngine shopQueueEngine;
+    @Mock
+    private PrepTimeModel prepTimeModel;
+    @Mock
+    private QueuePositionStream queuePositionStream;
+    @Mock
+    private QueueUpdateNotifier queueUpdateNotifier;
+    @Mock
+    private ShopQueueVersionStore shopQueueVersionStore;
+
+    @InjectMocks
+    private QueueService queueService;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        CoffeeShop shop = new CoffeeShop();
+        shop.setId(1L);
+        order = new Order();
+        order.setId(10L);
+        order.setCoffeeShop(shop);
+        order.setStatus(OrderStatus.CONFIRMED);
+    }
+
+    @Test
+    void updateQueuedStatus_AdvisoryLock_ReloadsOnlyAfterAnotherInstanceChangedQueue() {
+        // Given
+        when(shopQueueLock.lock(1L)).thenReturn(true);
+        when(shopQueueLock.isDistributed()).thenReturn(true);
+        // Versions 4 and 5 are this instance's changes, 6 was made by another instance
+        when(shopQueueVersionStore.increment(1L)).thenReturn(4L, 5L, 7L);
+
+        // When & Then: nothing applied yet, so the first change loads the queue
+        queueService.updateQueuedStatus(order);
+        verify(shopQueueEngine, times(1)).reload(1L);
+
+        // When & Then: the queue is still at the version this instance applied
+        queueService.updateQueuedStatus(order);
+        verify(shopQueueEngine, times(1)).reload(1L);
+
+        // When & Then
+        queueService.updateQueuedStatus(order);
+        verify(shopQueueEngine, times(2)).reload(1L);
+        verify(activeOrderCounter, times(2)).resync(1L);
+        verify(shopQueueEngine, times(3)).updateStatus(order);
+    }
+
+    @Test
+    void updateQueuedStatus_LocalLock_NeverReadsQueueVersion() {
+        // Given
+        when(shopQueueLock.lock(1L)).thenReturn(true);
+
+        // When
+        queueService.updateQueuedStatus(order);
+
+        // Then
+        verifyNoInteractions(shopQueueVersionStore);
+        verify(shopQueueEngine, never()).reload(anyLong());
+    }
+
+    @Test
+    void reloadQueuePosition_AdvisoryLock_ReadsVersionWithoutAdvancingIt() {
+        // Given
+        when(shopQueueLock.lock(1L)).thenReturn(true);
+        when(shopQueueLock.isDistributed()).thenReturn(true);
+        when(shopQueueVersionStore.current(1L)).thenReturn(3L);
+        ShopQueueEngine.QueueEntry entry =
+                new ShopQueueEngine.QueueEntry(10L, 1L, 7L, 2, 1, 4, 6, OrderStatus.CONFIRMED);
+        when(shopQueueEngine.find(10L)).thenReturn(Optional.of(entry));
+
+        // When
+        Optional<QueuePositionDto> position = queueService.reloadQueuePosition(1L, 10L, 7L);
+
+        // Then
+        assertEquals(2, position.orElseThrow().getLane());
+        verify(shopQueueVersionStore, never()).increment(anyLong());
+        verify(shopQueueEngine, times(1)).reload(1L);
+    }
+
+    @Test
+    void reloadQueuePosition_AdvisoryLock_OrderThatLeftIsNotReloadedTwice() {
+        // Given
+        when(shopQueueLock.lock(1L)).thenReturn(true);
+        when(shopQueueLock.isDistributed()).thenReturn(true);
+        when(shopQueueVersionStore.current(1L)).thenReturn(3L);
+        when(shopQueueEngine.find(10L)).thenReturn(Optional.empty());
+
+        // When
+        Optional<QueuePositionDto> position = queueService.reloadQueuePosition(1L, 10L, 7L);
+
+        // Then
+        assertTrue(position.isEmpty());
+        verify(shopQueueEngine, times(1)).reload(1L);
+    }
+
+    @Test
+    void reloadQueuePosition_LocalLock_ReloadsShopMissingTheOrder() {
+        // Given
+        when(shopQueueLock.lock(1L)).thenReturn(true);
+        when(shopQueueEngine.find(10L)).thenReturn(Optional.empty());
+
+        // When
+        queueService.reloadQueuePosition(1L, 10L, 7L);
+
+        // Then
+        verify(shopQueueEngine, times(1)).reload(1L);
+        verifyNoInteractions(shopQueueVersionStore);
+    }
+}
@@ -0,0 +1,137 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.OrderStatus;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QueueUpdateNotifierTest {
+
+    private static final Long SHOP_ID = 1L;
+
+    @Mock
+    private ShopQueueEngine shopQueueEngine;
+    @Mock
+    private NotificationService notificationService;
+
+    private QueueUpdateNotifier queueUpdateNotifier;
+
+    @BeforeEach
+    void setUp() {
+        queueUpdateNotifier = new QueueUpdateNotifier(shopQueueEngine, notificationService, 2);
+    }
+
+    @Test
+    void flush_SendsOneBatchPerShopWithLatestStateAndSkipsSmallEtaChanges() {
+        // Given: three orders confirmed with 10, 15 and 20 minutes; two cancellations ahead of them
+        queueUpdateNotifier.orderQueued(SHOP_ID, 1L, 10);
+        queueUpdateNotifier.orderQueued(SHOP_ID, 2L, 15);
+        queueUpdateNotifier.orderQueued(SHOP_ID, 3L, 20);
+        ShopQueueEngine.QueueEntry first = entry(1L, 1, 9);
+        ShopQueueEngine.QueueEntry second = entry(2L, 2, 10);
+        ShopQueueEngine.QueueEntry third = entry(3L, 3, 14);
+        when(shopQueueEngine.entries(SHOP_ID)).thenReturn(List.of(first, second, third));
+
+        // When
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+
+        // Then
+        verify(shopQueueEngine, times(1)).entries(SHOP_ID);
+        verify(notificationService).sendQueueUpdateNotifications(List.of(second, third));
+    }
+
+    @Test
+    void flush_ComparesAgainstLastNotifiedEtaAndIgnoresUnchangedShops() {
+        // Given
+        queueUpdateNotifier.orderQueued(SHOP_ID, 1L, 10);
+        when(shopQueueEngine.entries(SHOP_ID))
+                .thenReturn(List.of(entry(1L, 2, 7)))
+                .thenReturn(List.of(entry(1L, 1, 6)))
+                .thenReturn(List.of(entry(1L, 1, 5)));
+
+        // When
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+        queueUpdateNotifier.flush();
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+
+        // Then: 10 -> 7 is sent, 7 -> 6 is not, 7 -> 5 is
+        verify(notificationService).sendQueueUpdateNotifications(List.of(entry(1L, 2, 7)));
+        verify(notificationService).sendQueueUpdateNotifications(List.of(entry(1L, 1, 5)));
+        verify(notificationService, times(2)).sendQueueUpdateNotifications(anyList());
+        verify(shopQueueEngine, times(3)).entries(SHOP_ID);
+    }
+
+    @Test
+    void flush_OrderFirstSeenAfterRestartOnlySetsBaseline() {
+        // Given
+        when(shopQueueEngine.entries(SHOP_ID)).thenReturn(List.of(entry(1L, 1, 5)));
+
+        // When
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+
+        // Then
+        verify(notificationService, never()).sendQueueUpdateNotifications(anyList());
+    }
+
+    @Test
+    void flush_OrderQueuedAfterSnapshot_KeepsItsConfirmedEta() {
+        // Given: order 2 joins while the shop's entries are being read
+        queueUpdateNotifier.orderQueued(SHOP_ID, 1L, 10);
+        when(shopQueueEngine.entries(SHOP_ID))
+                .thenAnswer(invocation -> {
+                    queueUpdateNotifier.orderQueued(SHOP_ID, 2L, 15);
+                    return List.of(entry(1L, 1, 10));
+                })
+                .thenReturn(List.of(entry(1L, 1, 10), entry(2L, 2, 11)));
+        when(shopQueueEngine.find(2L)).thenReturn(Optional.of(entry(2L, 2, 15)));
+
+        // When
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+
+        // Then: 15 -> 11 is compared against the confirmed estimate
+        verify(notificationService).sendQueueUpdateNotifications(List.of(entry(2L, 2, 11)));
+    }
+
+    @Test
+    void flush_OrderLeftQueue_ForgetsItsEta() {
+        // Given
+        queueUpdateNotifier.orderQueued(SHOP_ID, 1L, 10);
+        when(shopQueueEngine.entries(SHOP_ID))
+                .thenReturn(List.of())
+                .thenReturn(List.of(entry(1L, 1, 5)));
+        when(shopQueueEngine.find(1L)).thenReturn(Optional.empty());
+
+        // When
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+        queueUpdateNotifier.shopChanged(SHOP_ID);
+        queueUpdateNotifier.flush();
+
+        // Then: the order is seen afresh, which only sets a new baseline
+        verify(notificationService, never()).sendQueueUpdateNotifications(anyList());
+    }
+
+    private static ShopQueueEngine.QueueEntry entry(Long orderId, int position, int estimatedWaitTime) {
+        return new ShopQueueEngine.QueueEntry(orderId, SHOP_ID, 10L + orderId, 1, position, 3,
+                estimatedWaitTime, OrderStatus.PENDING);
+    }
+}
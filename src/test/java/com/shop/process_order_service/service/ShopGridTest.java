@@ -0,0 +1,78 @@
+package com.shop.process_order_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShopGridTest {
+
+    @Test
+    void withinRadius_MatchesFullScan() {
+        // Given
+        Random random = new Random(42);
+        List<ShopGrid.Location> locations = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            locations.add(location(id, 52.0 + random.nextDouble(), 4.5 + random.nextDouble()));
+        }
+        ShopGrid grid = new ShopGrid(locations, 0.05);
+
+        // When
+        List<Long> found = ids(grid.withinRadius(52.37, 4.89, 7.5));
+
+        // Then
+        List<Long> expected = locations.stream()
+                .filter(l -> ShopGrid.distanceKm(52.37, 4.89, l.latitude(), l.longitude()) <= 7.5)
+                .sorted(Comparator.comparingDouble(l -> ShopGrid.distanceKm(52.37, 4.89, l.latitude(), l.longitude())))
+                .map(ShopGrid.Location::shopId)
+                .toList();
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, found);
+    }
+
+    @Test
+    void withinRadius_FindsShopsAcrossTheAntimeridian() {
+        // Given
+        ShopGrid grid = new ShopGrid(List.of(
+                location(1L, -16.5, 179.99),
+                location(2L, -16.5, -179.99),
+                location(3L, -16.5, 178.0)), 0.05);
+
+        // When
+        List<Long> found = ids(grid.withinRadius(-16.5, 179.999, 5));
+
+        // Then
+        assertEquals(2, found.size());
+        assertTrue(found.containsAll(List.of(1L, 2L)));
+    }
+
+    @Test
+    void nearest_ReturnsKNearestWithinMaxRadius() {
+        // Given
+        ShopGrid grid = new ShopGrid(List.of(
+                location(1L, 52.370, 4.890),
+                location(2L, 52.380, 4.890),
+                location(3L, 52.470, 4.890),
+                location(4L, 53.370, 4.890)), 0.05);
+
+        // When
+        List<Long> twoNearest = ids(grid.nearest(52.370, 4.890, 2, 50));
+        List<Long> withinTwentyKm = ids(grid.nearest(52.370, 4.890, 10, 20));
+
+        // Then
+        assertEquals(List.of(1L, 2L), twoNearest);
+        assertEquals(List.of(1L, 2L, 3L), withinTwentyKm);
+    }
+
+    private static List<Long> ids(List<ShopGrid.Hit> hits) {
+        return hits.stream().map(hit -> hit.location().shopId()).toList();
+    }
+
+    private static ShopGrid.Location location(long id, double latitude, double longitude) {
+        return new ShopGrid.Location(id, "Shop " + id, "Street " + id, latitude, longitude, 50, 1);
+    }
+}
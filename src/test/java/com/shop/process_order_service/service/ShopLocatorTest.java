@@ -0,0 +1,90 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.dto.NearbyShopDto;
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShopLocatorTest {
+
+    @Mock
+    private CoffeeShopRepository coffeeShopRepository;
+    @Mock
+    private ShopQueueEngine shopQueueEngine;
+
+    private ShopLocator shopLocator;
+
+    @BeforeEach
+    void setUp() {
+        shopLocator = new ShopLocator(coffeeShopRepository, shopQueueEngine, 0.05, 5, 3, 3);
+        // Shop 1 is the reference point, shop 2 is 1.1 km north, shop 3 is 2.2 km north and shop 4 is 20 km away.
+        when(coffeeShopRepository.findAll()).thenReturn(List.of(
+                shop(1L, 52.370, 4.890),
+                shop(2L, 52.380, 4.890),
+                shop(3L, 52.390, 4.890),
+                shop(4L, 52.550, 4.890)));
+        lenient().when(shopQueueEngine.currentLoad(anyLong(), anyInt()))
+                .thenReturn(new ShopQueueEngine.QueueLoad(0, 1, 0));
+        shopLocator.reload();
+    }
+
+    @Test
+    void findNearby_ReturnsShopsWithinRadiusNearestFirst() {
+        // When
+        List<NearbyShopDto> shops = shopLocator.findNearby(52.370, 4.890, 5, 10);
+
+        // Then
+        assertEquals(List.of(1L, 2L, 3L), shops.stream().map(NearbyShopDto::getShopId).toList());
+        assertEquals(0.0, shops.get(0).getDistanceKm());
+    }
+
+    @Test
+    void findShortestWait_PrefersFartherShopWhenItIsReadySooner() {
+        // Given
+        when(shopQueueEngine.currentLoad(1L, 1)).thenReturn(new ShopQueueEngine.QueueLoad(8, 1, 40 * 60));
+        when(shopQueueEngine.currentLoad(2L, 1)).thenReturn(new ShopQueueEngine.QueueLoad(6, 1, 30 * 60));
+
+        // When
+        List<NearbyShopDto> shops = shopLocator.findShortestWait(52.370, 4.890, 5, 5);
+
+        // Then
+        assertEquals(List.of(3L, 2L, 1L), shops.stream().map(NearbyShopDto::getShopId).toList());
+        assertEquals(27, shops.get(0).getTravelMinutes());
+        assertEquals(30, shops.get(1).getEstimatedWaitMinutes());
+    }
+
+    @Test
+    void findAlternatives_LeavesOutTheFullShopAndShopsWithFullQueues() {
+        // Given
+        when(shopQueueEngine.currentLoad(2L, 1)).thenReturn(new ShopQueueEngine.QueueLoad(10, 1, 50 * 60));
+
+        // When
+        List<NearbyShopDto> alternatives = shopLocator.findAlternatives(1L);
+
+        // Then
+        assertEquals(List.of(3L), alternatives.stream().map(NearbyShopDto::getShopId).toList());
+        verify(shopQueueEngine, never()).currentLoad(eq(1L), anyInt());
+    }
+
+    private static CoffeeShop shop(long id, double latitude, double longitude) {
+        CoffeeShop shop = new CoffeeShop();
+        shop.setId(id);
+        shop.setName("Shop " + id);
+        shop.setLatitude(latitude);
+        shop.setLongitude(longitude);
+        shop.setMaxQueueSize(10);
+        return shop;
+    }
+}
@@ -0,0 +1,257 @@
+package com.shop.process_order_service.service;
+
+import com.shop.process_order_service.entity.CoffeeShop;
+import com.shop.process_order_service.entity.Customer;
+import com.shop.process_order_service.entity.Order;
+import com.shop.process_order_service.entity.OrderStatus;
+import com.shop.process_order_service.repository.CoffeeShopRepository;
+import com.shop.process_order_service.repository.OrderRepository;
+import com.shop.process_order_service.repository.PrepTimeEstimateStore;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShopQueueEngineTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+    @Mock
+    private CoffeeShopRepository coffeeShopRepository;
+
+    private ShopQueueEngine shopQueueEngine;
+
+    private CoffeeShop testCoffeeShop;
+    private Customer testCustomer;
+
+    @BeforeEach
+    void setUp() {
+        PrepTimeModel prepTimeModel = new PrepTimeModel(mock(PrepTimeEstimateStore.class), 0.2, 300);
+        shopQueueEngine = new ShopQueueEngine(orderRepository, coffeeShopRepository, prepTimeModel);
+
+        testCoffeeShop = new CoffeeShop();
+        testCoffeeShop.setId(1L);
+
+        testCustomer = new Customer();
+        testCustomer.setId(7L);
+
+        lenient().when(coffeeShopRepository.findById(1L)).thenReturn(Optional.of(testCoffeeShop));
+    }
+
+    @Test
+    void rebuild_LoadsActiveOrdersOfEveryShopInArrivalOrder() {
+        // Given
+        when(coffeeShopRepository.findAll()).thenReturn(List.of(testCoffeeShop));
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of(order(30L), order(10L), order(20L)));
+
+        // When
+        shopQueueEngine.rebuild();
+        shopQueueEngine.enqueue(order(5L));
+
+        // Then
+        assertEquals(1, shopQueueEngine.find(30L).orElseThrow().position());
+        assertEquals(2, shopQueueEngine.find(10L).orElseThrow().position());
+        assertEquals(3, shopQueueEngine.find(20L).orElseThrow().position());
+        assertEquals(4, shopQueueEngine.find(5L).orElseThrow().position());
+        assertEquals(20, shopQueueEngine.find(5L).orElseThrow().estimatedWaitTime());
+        assertEquals(4, shopQueueEngine.find(5L).orElseThrow().totalInQueue());
+        assertEquals(7L, shopQueueEngine.find(5L).orElseThrow().customerId());
+        assertTrue(shopQueueEngine.find(99L).isEmpty());
+        verify(orderRepository, times(1)).findActiveOrdersByShop(1L);
+    }
+
+    @Test
+    void remove_MovesLaterOrdersUpWithoutTouchingEarlierOnes() {
+        // Given
+        when(orderRepository.findActiveOrdersByShop(1L))
+                .thenReturn(LongStream.rangeClosed(1, 1000).mapToObj(this::order).toList());
+
+        // When
+        shopQueueEngine.remove(1L, 1L);
+        shopQueueEngine.remove(1L, 500L);
+        shopQueueEngine.remove(1L, 12345L);
+
+        // Then
+        assertEquals(998, shopQueueEngine.size(1L));
+        assertTrue(shopQueueEngine.find(500L).isEmpty());
+        assertEquals(1, shopQueueEngine.find(2L).orElseThrow().position());
+        assertEquals(498, shopQueueEngine.find(499L).orElseThrow().position());
+        assertEquals(499, shopQueueEngine.find(501L).orElseThrow().position());
+        assertEquals(998, shopQueueEngine.find(1000L).orElseThrow().position());
+    }
+
+    @Test
+    void updateStatus_IsVisibleToReads() {
+        // Given
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of());
+        shopQueueEngine.enqueue(order(1L));
+
+        // When
+        shopQueueEngine.updateStatus(order(1L, OrderStatus.PROCESSING));
+
+        // Then
+        assertEquals(OrderStatus.PROCESSING, shopQueueEngine.find(1L).orElseThrow().status());
+    }
+
+    @Test
+    void find_CountsOnlyRemainingWorkOfOrdersBeingPrepared() {
+        // Given: every order is estimated at 5 minutes
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of());
+        shopQueueEngine.enqueue(order(1L));
+        shopQueueEngine.enqueue(order(2L));
+        Order started = order(1L, OrderStatus.PROCESSING);
+        started.setProcessingStartedAt(LocalDateTime.now().minusMinutes(2));
+
+        // When
+        shopQueueEngine.updateStatus(started);
+
+        // Then
+        assertEquals(3, shopQueueEngine.find(1L).orElseThrow().estimatedWaitTime());
+        assertEquals(8, shopQueueEngine.find(2L).orElseThrow().estimatedWaitTime());
+        assertEquals(8 * 60, shopQueueEngine.workAheadOfNewOrder(1L));
+    }
+
+    @Test
+    void rebuild_CountsWorkDoneBeforeTheRebuild() {
+        // Given
+        Order started = order(1L, OrderStatus.PROCESSING);
+        started.setProcessingStartedAt(LocalDateTime.now().minusMinutes(10));
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of(started, order(2L)));
+
+        // When
+        shopQueueEngine.reload(1L);
+
+        // Then: an order past its estimate has no work left
+        assertEquals(0, shopQueueEngine.find(1L).orElseThrow().estimatedWaitTime());
+        assertEquals(5, shopQueueEngine.find(2L).orElseThrow().estimatedWaitTime());
+    }
+
+    @Test
+    void queueEpoch_ChangesWithEveryQueueChange() {
+        // Given
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of());
+        shopQueueEngine.enqueue(order(1L));
+        long afterEnqueue = shopQueueEngine.queueEpoch(1L, 7L).orElseThrow();
+
+        // When
+        long unchanged = shopQueueEngine.queueEpoch(1L, 7L).orElseThrow();
+        shopQueueEngine.enqueue(order(2L));
+        long afterSecondEnqueue = shopQueueEngine.queueEpoch(1L, 7L).orElseThrow();
+        shopQueueEngine.updateStatus(order(2L, OrderStatus.PROCESSING));
+        long afterStatusUpdate = shopQueueEngine.queueEpoch(1L, 7L).orElseThrow();
+        shopQueueEngine.remove(1L, 2L);
+
+        // Then
+        assertEquals(afterEnqueue, unchanged);
+        assertNotEquals(afterEnqueue, afterSecondEnqueue);
+        assertNotEquals(afterSecondEnqueue, afterStatusUpdate);
+        assertNotEquals(afterStatusUpdate, shopQueueEngine.queueEpoch(1L, 7L).orElseThrow());
+        assertTrue(shopQueueEngine.queueEpoch(1L, 8L).isEmpty());
+        assertTrue(shopQueueEngine.queueEpoch(2L, 7L).isEmpty());
+    }
+
+    @Test
+    void applyChanges_RemovesAndUpdatesOrdersInOneStep() {
+        // Given
+        when(orderRepository.findActiveOrdersByShop(1L))
+                .thenReturn(LongStream.rangeClosed(1, 5).mapToObj(this::order).toList());
+        shopQueueEngine.size(1L);
+        long before = shopQueueEngine.queueEpoch(5L, 7L).orElseThrow();
+
+        // When
+        shopQueueEngine.applyChanges(1L, List.of(order(4L, OrderStatus.PROCESSING)), List.of(1L, 3L));
+
+        // Then
+        assertTrue(shopQueueEngine.find(1L).isEmpty());
+        assertTrue(shopQueueEngine.find(3L).isEmpty());
+        assertEquals(1, shopQueueEngine.find(2L).orElseThrow().position());
+        assertEquals(2, shopQueueEngine.find(4L).orElseThrow().position());
+        assertEquals(OrderStatus.PROCESSING, shopQueueEngine.find(4L).orElseThrow().status());
+        assertEquals(3, shopQueueEngine.find(5L).orElseThrow().totalInQueue());
+        assertEquals(before + 1, shopQueueEngine.queueEpoch(5L, 7L).orElseThrow());
+    }
+
+    @Test
+    void reload_DropsOrdersNoLongerActiveInDatabase() {
+        // Given
+        when(orderRepository.findActiveOrdersByShop(1L))
+                .thenReturn(List.of(order(1L), order(2L)))
+                .thenReturn(List.of(order(2L)));
+        shopQueueEngine.size(1L);
+
+        // When
+        shopQueueEngine.reload(1L);
+
+        // Then
+        assertTrue(shopQueueEngine.find(1L).isEmpty());
+        assertEquals(1, shopQueueEngine.find(2L).orElseThrow().position());
+    }
+
+    @Test
+    void enqueue_SpreadsOrdersOverLanesByRemainingWork() {
+        // Given
+        testCoffeeShop.setNumberOfQueues(2);
+        when(orderRepository.findActiveOrdersByShop(1L)).thenReturn(List.of());
+
+        // When
+        LongStream.rangeClosed(1, 4).forEach(id -> shopQueueEngine.enqueue(order(id)));
+
+        // Then
+        ShopQueueEngine.QueueEntry third = shopQueueEngine.find(3L).orElseThrow();
+        ShopQueueEngine.QueueEntry fourth = shopQueueEngine.find(4L).orElseThrow();
+        assertEquals(1, third.lane());
+        assertEquals(2, third.position());
+        assertEquals(10, third.estimatedWaitTime());
+        assertEquals(2, fourth.lane());
+        assertEquals(2, fourth.position());
+        assertEquals(4, fourth.totalInQueue());
+        assertEquals(600, shopQueueEngine.workAheadOfNewOrder(1L));
+    }
+
+    @Test
+    void remove_RebalancesLanesWhenThatServesTheMovedOrderSooner() {
+        // Given
+        testCoffeeShop.setNumberOfQueues(2);
+        when(orderRepository.findActiveOrdersByShop(1L))
+                .thenReturn(LongStream.rangeClosed(1, 4).mapToObj(this::order).toList());
+
+        // When
+        shopQueueEngine.remove(1L, 1L);
+
+        // Then: lane 1 now holds 5 minutes and lane 2 holds 10, moving order 4 would not help
+        assertEquals(2, shopQueueEngine.find(4L).orElseThrow().lane());
+
+        // When
+        shopQueueEngine.remove(1L, 3L);
+
+        // Then
+        ShopQueueEngine.QueueEntry moved = shopQueueEngine.find(4L).orElseThrow();
+        assertEquals(1, moved.lane());
+        assertEquals(1, moved.position());
+        assertEquals(5, moved.estimatedWaitTime());
+        assertEquals(1, shopQueueEngine.find(2L).orElseThrow().position());
+    }
+
+    private Order order(long id) {
+        return order(id, OrderStatus.PENDING);
+    }
+
+    private Order order(long id, OrderStatus status) {
+        Order order = new Order();
+        order.setId(id);
+        order.setCoffeeShop(testCoffeeShop);
+        order.setCustomer(testCustomer);
+        order.setStatus(status);
+        return order;
+    }
+}